@@ -0,0 +1,181 @@
+package project.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import project.dao.DbConnection;
+import project.dao.ProjectDao;
+import project.entity.Category;
+import project.entity.Material;
+import project.entity.Project;
+import project.entity.Step;
+import project.exception.DbException;
+
+/**
+ * Seeds the benchmark database with generated projects. The database is the one configured in
+ * {@link DbConnection} (a local MySQL or MySQL-compatible server such as MariaDB). Seeding drops
+ * and recreates all tables from projects-schema.sql, so never point the benchmarks at a database
+ * that holds real data.
+ *
+ * Data is generated from a fixed seed so that every run measures the same data set.
+ */
+public class BenchmarkData {
+	public static final long SEED = 20_240_601L;
+
+	private static final int CATEGORY_COUNT = 12;
+	private static final String SCHEMA_RESOURCE = "/projects-schema.sql";
+
+	private static final String[] WORDS = {"deck", "shed", "fence", "garden", "paint", "tile",
+			"cabinet", "shelf", "door", "window", "roof", "floor", "patio", "lamp", "bench", "table"};
+
+	/**
+	 * Recreates the schema, inserts the categories and inserts the given number of generated
+	 * projects with their materials, steps and category links.
+	 *
+	 * @param projectCount The number of projects to insert
+	 * @return The IDs of the inserted projects
+	 */
+	public static List<Integer> seed(int projectCount) {
+		resetSchema();
+
+		Random random = new Random(SEED);
+		List<Project> projects = generateProjects(random, projectCount);
+
+		new ProjectDao().insertProjects(projects);
+
+		return projects.stream().map(Project::getProjectId).collect(Collectors.toList());
+	}
+
+	/**
+	 * Drops and recreates all tables, then inserts the categories.
+	 */
+	public static void resetSchema() {
+		try(Connection conn = DbConnection.getConnection(); Statement stmt = conn.createStatement()) {
+			for(String sql : readSchemaStatements()) {
+				stmt.execute(sql);
+			}
+
+			try(PreparedStatement insert =
+					conn.prepareStatement("INSERT INTO category (category_name) VALUES (?)")) {
+				for(int i = 1; i <= CATEGORY_COUNT; i++) {
+					insert.setString(1, "Category " + i);
+					insert.addBatch();
+				}
+
+				insert.executeBatch();
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+
+	/**
+	 * Generates projects that have not been inserted.
+	 *
+	 * @param random The random source
+	 * @param count The number of projects
+	 * @return The generated projects
+	 */
+	public static List<Project> generateProjects(Random random, int count) {
+		List<Project> projects = new ArrayList<>(count);
+
+		for(int i = 0; i < count; i++) {
+			projects.add(generateProject(random));
+		}
+
+		return projects;
+	}
+
+	/**
+	 * Generates one project with up to 8 materials, 1 to 12 steps and up to 3 categories.
+	 *
+	 * @param random The random source
+	 * @return The generated project
+	 */
+	public static Project generateProject(Random random) {
+		Project project = new Project();
+
+		project.setProjectName(words(random, 3));
+		project.setEstimatedHours(hours(random));
+		project.setActualHours(hours(random));
+		project.setDifficulty(1 + random.nextInt(5));
+		project.setNotes(words(random, 10 + random.nextInt(60)));
+
+		for(int i = random.nextInt(9); i > 0; i--) {
+			Material material = new Material();
+			material.setMaterialName(words(random, 2));
+			material.setNumRequired(1 + random.nextInt(20));
+			material.setCost(BigDecimal.valueOf(random.nextInt(100_000), 2));
+			project.getMaterials().add(material);
+		}
+
+		for(int i = 1 + random.nextInt(12); i > 0; i--) {
+			Step step = new Step();
+			step.setStepText(words(random, 5 + random.nextInt(20)));
+			project.getSteps().add(step);
+		}
+
+		int firstCategory = 1 + random.nextInt(CATEGORY_COUNT);
+
+		for(int i = random.nextInt(4); i > 0; i--) {
+			project.getCategories().add(new Category((firstCategory + i) % CATEGORY_COUNT + 1, null));
+		}
+
+		return project;
+	}
+
+	private static String words(Random random, int count) {
+		StringBuilder builder = new StringBuilder();
+
+		for(int i = 0; i < count; i++) {
+			if(i > 0) {
+				builder.append(' ');
+			}
+
+			builder.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+
+		return builder.toString();
+	}
+
+	private static BigDecimal hours(Random random) {
+		return BigDecimal.valueOf(random.nextInt(20_000), 2);
+	}
+
+	private static List<String> readSchemaStatements() {
+		try(InputStream in = BenchmarkData.class.getResourceAsStream(SCHEMA_RESOURCE)) {
+			if(in == null) {
+				throw new DbException("Schema resource not found: " + SCHEMA_RESOURCE);
+			}
+
+			String script = new String(in.readAllBytes(), StandardCharsets.UTF_8).lines()
+					.filter(line -> !line.trim().startsWith("--"))
+					.collect(Collectors.joining("\n"));
+
+			List<String> statements = new ArrayList<>();
+
+			for(String sql : script.split(";")) {
+				if(!sql.isBlank()) {
+					statements.add(sql.trim());
+				}
+			}
+
+			return statements;
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package project.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import project.dao.DbConnection;
+import project.dao.ProjectDao;
+import project.entity.Project;
+
+/**
+ * Benchmarks for the insert paths against a populated project table. The table keeps growing
+ * during the run, so compare variants from the same run rather than across runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ProjectInsertBenchmark {
+	private static final int BULK_SIZE = 100;
+
+	//@formatter:off
+	private static final String INSERT_SQL = ""
+			+ "INSERT INTO project "
+			+ "(project_name, estimated_hours, actual_hours, difficulty, notes) "
+			+ "VALUES (?, ?, ?, ?, ?)";
+	//@formatter:on
+
+	@Param({"10000"})
+	private int seededProjects;
+
+	private ProjectDao projectDao;
+	private Random random;
+
+	@Setup
+	public void setup() {
+		BenchmarkData.seed(seededProjects);
+		projectDao = new ProjectDao();
+		random = new Random(BenchmarkData.SEED);
+	}
+
+	/** insertProject, which reads the key with getGeneratedKeys. */
+	@Benchmark
+	public Project insertWithGeneratedKeys() {
+		return projectDao.insertProject(newProject());
+	}
+
+	/** The original approach: insert, then SELECT LAST_INSERT_ID() FROM project. */
+	@Benchmark
+	public Integer insertWithLastInsertIdQuery() throws SQLException {
+		Project project = newProject();
+
+		try(Connection conn = DbConnection.getConnection()) {
+			conn.setAutoCommit(false);
+
+			try(PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+				stmt.setString(1, project.getProjectName());
+				stmt.setBigDecimal(2, project.getEstimatedHours());
+				stmt.setBigDecimal(3, project.getActualHours());
+				stmt.setInt(4, project.getDifficulty());
+				stmt.setString(5, project.getNotes());
+				stmt.executeUpdate();
+			}
+
+			try(Statement stmt = conn.createStatement();
+					ResultSet rs = stmt.executeQuery("SELECT LAST_INSERT_ID() FROM project")) {
+				rs.next();
+				Integer projectId = rs.getInt(1);
+				conn.commit();
+				return projectId;
+			}
+		}
+	}
+
+	@Benchmark
+	public List<Project> bulkInsert() {
+		return projectDao.insertProjects(BenchmarkData.generateProjects(random, BULK_SIZE));
+	}
+
+	private Project newProject() {
+		return BenchmarkData.generateProject(random);
+	}
+}
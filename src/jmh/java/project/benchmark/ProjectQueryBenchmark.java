@@ -0,0 +1,133 @@
+package project.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import project.dao.ProjectDao;
+import project.dao.ProjectLoadMode;
+import project.entity.Project;
+
+/**
+ * Benchmarks for the {@link ProjectDao} read paths against the database configured in
+ * DbConnection. The trial setup drops and reseeds all tables with {@link BenchmarkData}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ProjectQueryBenchmark {
+	private static final int BATCH = 100;
+	private static final int PAGE_SIZE = 50;
+
+	@Param({"1000"})
+	private int projectCount;
+
+	private ProjectDao projectDao;
+	private List<Integer> projectIds;
+
+	@Setup
+	public void setup() {
+		projectIds = BenchmarkData.seed(projectCount);
+		projectDao = new ProjectDao();
+	}
+
+	@Benchmark
+	public Optional<Project> fetchProjectSequential() {
+		return projectDao.fetchProjectById(randomId(), ProjectLoadMode.SEQUENTIAL);
+	}
+
+	@Benchmark
+	public Optional<Project> fetchProjectSingleRoundTrip() {
+		return projectDao.fetchProjectById(randomId(), ProjectLoadMode.SINGLE_ROUND_TRIP);
+	}
+
+	@Benchmark
+	public Optional<Project> fetchProjectParallel() {
+		return projectDao.fetchProjectById(randomId(), ProjectLoadMode.PARALLEL);
+	}
+
+	/**
+	 * Eight concurrent PARALLEL loads want 32 connections from a pool of 10. Every call must
+	 * finish (loads that cannot get four connections at once fall back to one) rather than time
+	 * out waiting for the pool.
+	 */
+	@Benchmark
+	@Threads(8)
+	public Optional<Project> fetchProjectParallelContended() {
+		return projectDao.fetchProjectById(randomId(), ProjectLoadMode.PARALLEL);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public Optional<Project> fetchProjectParallelSnapshotContended() {
+		return projectDao.fetchProjectById(randomId(), ProjectLoadMode.PARALLEL_SNAPSHOT);
+	}
+
+	/** The N+1 baseline: one fetchProjectById per project. */
+	@Benchmark
+	public List<Project> fetchProjectsOneByOne() {
+		List<Project> projects = new ArrayList<>(BATCH);
+
+		for(Integer projectId : randomIds(BATCH)) {
+			projectDao.fetchProjectById(projectId).ifPresent(projects::add);
+		}
+
+		return projects;
+	}
+
+	@Benchmark
+	public List<Project> fetchProjectsBatched() {
+		return projectDao.fetchProjectsById(randomIds(BATCH));
+	}
+
+	@Benchmark
+	public List<Project> fetchAllProjects() {
+		return projectDao.fetchAllProjects();
+	}
+
+	@Benchmark
+	public void streamAllProjects(Blackhole bh) {
+		try(Stream<Project> projects = projectDao.streamAllProjects()) {
+			projects.forEach(bh::consume);
+		}
+	}
+
+	@Benchmark
+	public List<Project> fetchFirstProjectPage() {
+		return projectDao.fetchProjectPage(null, null, PAGE_SIZE);
+	}
+
+	private Integer randomId() {
+		return projectIds.get(ThreadLocalRandom.current().nextInt(projectIds.size()));
+	}
+
+	private List<Integer> randomIds(int count) {
+		List<Integer> ids = new ArrayList<>(count);
+
+		for(int i = 0; i < count; i++) {
+			ids.add(randomId());
+		}
+
+		return ids;
+	}
+}
@@ -0,0 +1,96 @@
+package project.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import project.dao.DbConnection;
+import project.dao.ProjectDao;
+import project.dao.ProjectSearchResult;
+import project.exception.DbException;
+
+/**
+ * Compares {@link ProjectDao#searchProjects(String, int, int)}, which uses the FULLTEXT indexes,
+ * with the naive alternative of a LIKE '%term%' scan over project names, notes and step text.
+ * "cabinet" appears in most generated projects; "pergola" appears in none, which is where the
+ * index helps most because the scan must still read every row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ProjectSearchBenchmark {
+	private static final int PAGE_SIZE = 20;
+
+	//@formatter:off
+	private static final String LIKE_SCAN_SQL = ""
+			+ "SELECT DISTINCT p.project_id, p.project_name "
+			+ "FROM project p LEFT JOIN step s USING (project_id) "
+			+ "WHERE p.project_name LIKE ? OR p.notes LIKE ? OR s.step_text LIKE ? "
+			+ "ORDER BY p.project_id "
+			+ "LIMIT ?";
+	//@formatter:on
+
+	@Param({"10000"})
+	private int projectCount;
+
+	@Param({"cabinet", "pergola"})
+	private String term;
+
+	private ProjectDao projectDao;
+
+	@Setup
+	public void setup() {
+		BenchmarkData.seed(projectCount);
+		projectDao = new ProjectDao();
+	}
+
+	@Benchmark
+	public List<ProjectSearchResult> fullTextSearch() {
+		return projectDao.searchProjects(term, 0, PAGE_SIZE);
+	}
+
+	@Benchmark
+	public List<Integer> likeScan() {
+		String pattern = "%" + term + "%";
+
+		try(Connection conn = DbConnection.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(LIKE_SCAN_SQL)) {
+			stmt.setString(1, pattern);
+			stmt.setString(2, pattern);
+			stmt.setString(3, pattern);
+			stmt.setInt(4, PAGE_SIZE);
+
+			List<Integer> projectIds = new ArrayList<>(PAGE_SIZE);
+
+			try(ResultSet rs = stmt.executeQuery()) {
+				while(rs.next()) {
+					projectIds.add(rs.getInt(1));
+				}
+			}
+
+			return projectIds;
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+}
@@ -0,0 +1,224 @@
+package provided.util;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import project.entity.Project;
+
+/**
+ * Benchmarks for the {@link DaoBase} hot paths that do not need a database: row mapping,
+ * parameter binding and name conversion. Result sets and prepared statements are in-memory
+ * proxies, so the numbers include a small, constant proxy overhead per JDBC call and measure the
+ * mapping code rather than the driver.
+ *
+ * This class lives in the provided.util package so that it can call the protected and
+ * package-private methods directly.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DaoBaseBenchmark {
+  private static final String[] PROJECT_COLUMNS =
+      {"project_id", "project_name", "estimated_hours", "actual_hours", "difficulty", "notes"};
+
+  @Param({"1", "1000"})
+  private int rows;
+
+  private final DaoBase dao = new DaoBase() {};
+  private FakeResultSet fakeResultSet;
+  private ResultSet resultSet;
+  private PreparedStatement statement;
+  private Project project;
+  private String[] fieldNames;
+
+  @Setup
+  public void setup() {
+    Object[][] data = new Object[rows][];
+
+    for(int row = 0; row < rows; row++) {
+      data[row] = new Object[] {row + 1, "Project " + row, new BigDecimal("12.50"),
+          new BigDecimal("10.25"), 1 + row % 5, "Notes for project " + row};
+    }
+
+    fakeResultSet = new FakeResultSet(PROJECT_COLUMNS, data);
+    resultSet = fakeResultSet.proxy();
+
+    statement = (PreparedStatement)Proxy.newProxyInstance(DaoBaseBenchmark.class.getClassLoader(),
+        new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> null);
+
+    project = new Project();
+    project.setProjectName("Build a deck");
+    project.setEstimatedHours(new BigDecimal("12.50"));
+    project.setActualHours(new BigDecimal("10.25"));
+    project.setDifficulty(3);
+    project.setNotes("Use pressure treated lumber");
+
+    fieldNames = new String[Project.class.getDeclaredFields().length];
+
+    for(int i = 0; i < fieldNames.length; i++) {
+      fieldNames[i] = Project.class.getDeclaredFields()[i].getName();
+    }
+  }
+
+  /** The original reflective extract, kept as the baseline. */
+  @Benchmark
+  public void extractReflective(Blackhole bh) throws SQLException {
+    fakeResultSet.rewind();
+
+    while(resultSet.next()) {
+      bh.consume(reflectiveExtract(resultSet, Project.class));
+    }
+  }
+
+  /** extract() called once per row, which resolves the cached plan on every row. */
+  @Benchmark
+  public void extractPerRow(Blackhole bh) throws SQLException {
+    fakeResultSet.rewind();
+
+    while(resultSet.next()) {
+      bh.consume(dao.extract(resultSet, Project.class));
+    }
+  }
+
+  /** extractAll(), which resolves the cached plan once per result set. */
+  @Benchmark
+  public List<Project> extractAll() throws SQLException {
+    fakeResultSet.rewind();
+    return dao.extractAll(resultSet, Project.class);
+  }
+
+  @Benchmark
+  public void setParameters() throws SQLException {
+    dao.setParameter(statement, 1, project.getProjectName(), String.class);
+    dao.setParameter(statement, 2, project.getEstimatedHours(), BigDecimal.class);
+    dao.setParameter(statement, 3, project.getActualHours(), BigDecimal.class);
+    dao.setParameter(statement, 4, project.getDifficulty(), Integer.class);
+    dao.setParameter(statement, 5, project.getNotes(), String.class);
+  }
+
+  @Benchmark
+  public void camelCaseToSnakeCase(Blackhole bh) {
+    for(String fieldName : fieldNames) {
+      bh.consume(DaoBase.camelCaseToSnakeCase(fieldName));
+    }
+  }
+
+  /*
+   * A copy of the reflective DaoBase.extract() as it was before RowMapper was introduced.
+   */
+  private static <T> T reflectiveExtract(ResultSet rs, Class<T> classType) {
+    try {
+      Constructor<T> con = classType.getConstructor();
+      T obj = con.newInstance();
+
+      for(Field field : classType.getDeclaredFields()) {
+        String colName = DaoBase.camelCaseToSnakeCase(field.getName());
+        field.setAccessible(true);
+        Object fieldValue = null;
+
+        try {
+          fieldValue = rs.getObject(colName);
+        }
+        catch(SQLException e) {
+          /* The field name isn't in the result set. */
+        }
+
+        if(Objects.nonNull(fieldValue)) {
+          field.set(obj, fieldValue);
+        }
+      }
+
+      return obj;
+    }
+    catch(Exception e) {
+      throw new DaoBase.DaoException("Unable to create object of type " + classType.getName(), e);
+    }
+  }
+
+  /*
+   * An in-memory, rewindable result set. getObject(String) throws for unknown columns, like a
+   * real driver does.
+   */
+  private static class FakeResultSet {
+    private final String[] labels;
+    private final Object[][] data;
+    private int row = -1;
+
+    private FakeResultSet(String[] labels, Object[][] data) {
+      this.labels = labels;
+      this.data = data;
+    }
+
+    private void rewind() {
+      row = -1;
+    }
+
+    private ResultSet proxy() {
+      ClassLoader loader = DaoBaseBenchmark.class.getClassLoader();
+
+      ResultSetMetaData meta = (ResultSetMetaData)Proxy.newProxyInstance(loader,
+          new Class<?>[] {ResultSetMetaData.class}, (proxy, method, args) -> {
+            switch(method.getName()) {
+              case "getColumnCount":
+                return labels.length;
+              case "getColumnLabel":
+              case "getColumnName":
+                return labels[(Integer)args[0] - 1];
+              default:
+                throw new UnsupportedOperationException(method.getName());
+            }
+          });
+
+      return (ResultSet)Proxy.newProxyInstance(loader, new Class<?>[] {ResultSet.class},
+          (proxy, method, args) -> {
+            switch(method.getName()) {
+              case "next":
+                return ++row < data.length;
+              case "getMetaData":
+                return meta;
+              case "getObject":
+                if(args[0] instanceof Integer index) {
+                  return data[row][index - 1];
+                }
+
+                for(int col = 0; col < labels.length; col++) {
+                  if(labels[col].equalsIgnoreCase((String)args[0])) {
+                    return data[row][col];
+                  }
+                }
+
+                throw new SQLException("Column '" + args[0] + "' not found.");
+              case "close":
+                return null;
+              default:
+                throw new UnsupportedOperationException(method.getName());
+            }
+          });
+    }
+  }
+}
@@ -6,6 +6,7 @@ import java.util.Objects;
 import java.util.Scanner;
 import project.entity.Project;
 import project.exception.DbException;
+import project.exception.OptimisticLockException;
 import project.service.ProjectService;
 
 /**
@@ -33,9 +34,20 @@ public class ProjectsAPP{
      
     public static void main(String[] args) {
         ProjectsAPP app = new ProjectsAPP();
+        app.resumePurges(); // Finish deletes cut short by the last run
         app.processUserSelections(); // Process user selections
     }
 
+    // Method to queue the projects still hidden by an interrupted purge
+    private void resumePurges() {
+        try {
+          projectService.resumePurges();
+        }
+        catch(DbException e) {
+          System.out.println("\nError: " + e + " Unfinished deletes will resume at the next start.");
+        }
+    }
+
     // Method to display the menu and process user selections
     private void processUserSelections() {
         boolean done = false;
@@ -127,24 +139,63 @@ public class ProjectsAPP{
 
 	    String notes = getStringInput("Enter the project notes [" + curProject.getNotes() + "]");
 
-	    //Create and populate a Project object.
+	    /*
+	     * Create a copy of the current project's details, then apply only the values the user
+	     * entered. The copy tracks which of them actually changed, so only those columns are
+	     * written.
+	     */
 	    Project project = new Project();
 
 	    project.setProjectId(curProject.getProjectId());
-	    project.setProjectName(Objects.isNull(projectName) ? curProject.getProjectName() : projectName);
-
-	    project.setEstimatedHours(
-	        Objects.isNull(estimatedHours) ? curProject.getEstimatedHours() : estimatedHours);
-
-	    project.setActualHours(Objects.isNull(actualHours) ? curProject.getActualHours() : actualHours);
-	    project.setDifficulty(Objects.isNull(difficulty) ? curProject.getDifficulty() : difficulty);
-	    project.setNotes(Objects.isNull(notes) ? curProject.getNotes() : notes);
-
-	    /* Call the project service to update the project details. */
-	    projectService.modifyProjectDetails(project);
-
-	    /* Re-read the current project, which will display the new details. */
-	    curProject = projectService.fetchProjectById(curProject.getProjectId());
+	    project.setProjectName(curProject.getProjectName());
+	    project.setEstimatedHours(curProject.getEstimatedHours());
+	    project.setActualHours(curProject.getActualHours());
+	    project.setDifficulty(curProject.getDifficulty());
+	    project.setNotes(curProject.getNotes());
+	    project.setVersion(curProject.getVersion());
+	    project.clearChanges();
+
+	    if(Objects.nonNull(projectName)) {
+	      project.setProjectName(projectName);
+	    }
+
+	    if(Objects.nonNull(estimatedHours)) {
+	      project.setEstimatedHours(estimatedHours);
+	    }
+
+	    if(Objects.nonNull(actualHours)) {
+	      project.setActualHours(actualHours);
+	    }
+
+	    if(Objects.nonNull(difficulty)) {
+	      project.setDifficulty(difficulty);
+	    }
+
+	    if(Objects.nonNull(notes)) {
+	      project.setNotes(notes);
+	    }
+
+	    /*
+	     * Call the project service to update the changed details, unless someone else changed the
+	     * project since it was selected. The update sets the new version, so the current project is
+	     * rebuilt from the new details and its child rows instead of being read again.
+	     */
+	    try {
+	      if(!projectService.modifyChangedProjectDetails(project)) {
+	        System.out.println("\nNothing was changed.");
+	        return;
+	      }
+	    }
+	    catch(OptimisticLockException e) {
+	      System.out.println("\n" + e.getMessage() + " Reloading the project; please try again.");
+	      curProject = projectService.fetchProjectById(curProject.getProjectId());
+	      return;
+	    }
+
+	    project.getMaterials().addAll(curProject.getMaterials());
+	    project.getSteps().addAll(curProject.getSteps());
+	    project.getCategories().addAll(curProject.getCategories());
+	    curProject = project;
 	
 	}
 
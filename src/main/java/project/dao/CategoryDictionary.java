@@ -0,0 +1,111 @@
+package project.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import project.entity.Category;
+
+/**
+ * An in-memory copy of the category table shared by all {@link ProjectDao} instances. The table is
+ * small and rarely changes, so project loads read only the category IDs from project_category and
+ * resolve them here instead of joining category every time. Every project gets the same
+ * immutable {@link Category} instance for a given ID.
+ *
+ * The dictionary is a sorted int[] of category IDs with a parallel {@link Category} array, so a
+ * lookup is a binary search that neither boxes nor hashes, and its size depends only on the number
+ * of categories, not on how large their IDs are. It is loaded on first use, reloaded whenever an
+ * unknown ID is looked up (a category added since the last load), and can be reloaded with
+ * {@link #refresh()}.
+ */
+public class CategoryDictionary {
+	private static final String FETCH_ALL_CATEGORIES_SQL =
+			"SELECT category_id, category_name FROM category ORDER BY category_id";
+
+	private volatile Entries entries;
+
+	/**
+	 * Returns the category with the given ID, loading or reloading the dictionary on the given
+	 * connection if needed.
+	 *
+	 * @param conn A connection used only if the dictionary must be (re)loaded
+	 * @param categoryId The category ID
+	 * @return The shared category instance
+	 * @throws SQLException Thrown if the dictionary cannot be loaded or the ID does not exist
+	 */
+	public Category resolve(Connection conn, int categoryId) throws SQLException {
+		Category category = lookup(entries, categoryId);
+
+		if(Objects.isNull(category)) {
+			category = lookup(reload(conn), categoryId);
+
+			if(Objects.isNull(category)) {
+				throw new SQLException("Category with ID=" + categoryId + " does not exist.");
+			}
+		}
+
+		return category;
+	}
+
+	/**
+	 * @param conn A connection used only if the dictionary has not been loaded
+	 * @return Every category, ordered by ID
+	 * @throws SQLException Thrown if the dictionary cannot be loaded
+	 */
+	public List<Category> all(Connection conn) throws SQLException {
+		Entries loaded = entries;
+
+		if(Objects.isNull(loaded)) {
+			loaded = reload(conn);
+		}
+
+		return List.of(loaded.categories());
+	}
+
+	/**
+	 * Discards the dictionary; it is reloaded on next use. Call after changing the category table.
+	 */
+	public void refresh() {
+		entries = null;
+	}
+
+	private static Category lookup(Entries loaded, int categoryId) {
+		if(Objects.isNull(loaded)) {
+			return null;
+		}
+
+		int index = Arrays.binarySearch(loaded.ids(), categoryId);
+		return index < 0 ? null : loaded.categories()[index];
+	}
+
+	/*
+	 * Concurrent reloads may both run; either result is complete, so the last one wins.
+	 */
+	private Entries reload(Connection conn) throws SQLException {
+		List<Category> categories = new ArrayList<>();
+
+		/* The query orders by ID, so the IDs come out sorted for the binary search. */
+		try(PreparedStatement stmt = conn.prepareStatement(FETCH_ALL_CATEGORIES_SQL);
+				ResultSet rs = stmt.executeQuery()) {
+			while(rs.next()) {
+				categories.add(new Category(rs.getInt("category_id"), rs.getString("category_name")));
+			}
+		}
+
+		int[] ids = categories.stream().mapToInt(Category::getCategoryId).toArray();
+		Entries loaded = new Entries(ids, categories.toArray(Category[]::new));
+
+		entries = loaded;
+		return loaded;
+	}
+
+	/*
+	 * Sorted category IDs and the categories at the same positions.
+	 */
+	private record Entries(int[] ids, Category[] categories) {
+	}
+}
@@ -0,0 +1,24 @@
+package project.dao;
+
+import java.math.BigDecimal;
+
+/**
+ * Estimated and actual hours of the projects in one category, returned by
+ * {@link ProjectDao#fetchCategoryHours()}.
+ *
+ * @param categoryId The category ID
+ * @param categoryName The category name
+ * @param projectCount The number of projects in the category
+ * @param estimatedHours The sum of the projects' estimated hours. Zero if there are none.
+ * @param actualHours The sum of the projects' actual hours. Zero if there are none.
+ */
+public record CategoryHoursSummary(int categoryId, String categoryName, int projectCount,
+		BigDecimal estimatedHours, BigDecimal actualHours) {
+
+	/**
+	 * @return Actual minus estimated hours; positive when the projects ran over
+	 */
+	public BigDecimal variance() {
+		return actualHours.subtract(estimatedHours);
+	}
+}
@@ -0,0 +1,616 @@
+package project.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import project.exception.DbException;
+import provided.util.DaoMetrics;
+import provided.util.StatementCache;
+
+/**
+ * A bounded pool of physical JDBC connections. Callers receive a proxy {@link Connection}; calling
+ * {@link Connection#close()} on the proxy hands the physical connection back to the pool instead of
+ * closing it, so DAO code keeps its try-with-resources pattern unchanged.
+ *
+ * The pool keeps at least {@code minSize} connections open, never opens more than
+ * {@code maxSize}, evicts connections that have been idle longer than the idle timeout, validates
+ * connections that have been sitting idle before handing them out and counts connections that
+ * have been checked out longer than the leak threshold (see {@link Stats#lastLeak()}).
+ *
+ * Each physical connection owns a {@link StatementCache}. The connection proxies implement
+ * {@link StatementCache.Source}, so DaoBase reuses prepared statements across checkouts.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+	/* Connections idle for less than this are handed out without a validation round trip. */
+	private static final long VALIDATION_INTERVAL_MILLIS = 5_000;
+	private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+	private static final long HOUSEKEEPING_INTERVAL_MILLIS = 5_000;
+
+	private final String url;
+	private final int minSize;
+	private final int maxSize;
+	private final long idleTimeoutMillis;
+	private final long acquireTimeoutMillis;
+	private final long leakThresholdMillis;
+	private final int statementCacheSize;
+
+	private final ReentrantLock lock = new ReentrantLock(true);
+	private final Condition available = lock.newCondition();
+	private final Deque<PooledConnection> idle = new ArrayDeque<>();
+	private final Set<PooledConnection> inUse = ConcurrentHashMap.newKeySet();
+	private final ScheduledExecutorService housekeeper;
+
+	private int totalConnections;
+	private int waiters;
+	private boolean closed;
+
+	private final AtomicLong acquired = new AtomicLong();
+	private final AtomicLong created = new AtomicLong();
+	private final AtomicLong destroyed = new AtomicLong();
+	private final AtomicLong timeouts = new AtomicLong();
+	private final AtomicLong leaksDetected = new AtomicLong();
+	private final AtomicLong acquireNanos = new AtomicLong();
+	private volatile Throwable lastLeak;
+
+	/**
+	 * Creates the pool and opens the minimum number of connections.
+	 *
+	 * @param url The JDBC URL, including credentials.
+	 * @param minSize The number of connections kept open even when idle.
+	 * @param maxSize The maximum number of open connections.
+	 * @param idleTimeoutMillis Idle connections above {@code minSize} are closed after this long.
+	 * @param acquireTimeoutMillis How long {@link #getConnection()} waits for a free connection.
+	 * @param leakThresholdMillis A checked-out connection held longer than this is reported as a
+	 *        possible leak. Zero disables leak detection.
+	 * @param statementCacheSize The number of prepared statements cached per physical connection.
+	 */
+	public ConnectionPool(String url, int minSize, int maxSize, long idleTimeoutMillis,
+			long acquireTimeoutMillis, long leakThresholdMillis, int statementCacheSize) {
+		if(minSize < 0 || maxSize < 1 || minSize > maxSize) {
+			throw new IllegalArgumentException(
+					"Invalid pool size: min=" + minSize + ", max=" + maxSize);
+		}
+
+		this.url = url;
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		this.acquireTimeoutMillis = acquireTimeoutMillis;
+		this.leakThresholdMillis = leakThresholdMillis;
+		this.statementCacheSize = statementCacheSize;
+
+		housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		housekeeper.scheduleWithFixedDelay(this::housekeeping, HOUSEKEEPING_INTERVAL_MILLIS,
+				HOUSEKEEPING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+		fillToMinimum();
+	}
+
+	/**
+	 * Borrows a connection from the pool, opening a new one if none are idle and the pool is not at
+	 * its maximum size. Closing the returned connection returns it to the pool.
+	 *
+	 * @return A pooled connection.
+	 * @throws DbException Thrown if no connection becomes available within the acquire timeout or
+	 *         a new connection cannot be opened.
+	 */
+	public Connection getConnection() {
+		long start = System.nanoTime();
+		long deadline = start + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+
+		while(true) {
+			PooledConnection pooled = null;
+			boolean create = false;
+
+			lock.lock();
+
+			try {
+				while(true) {
+					if(closed) {
+						throw new DbException("The connection pool has been closed.");
+					}
+
+					pooled = idle.pollFirst();
+
+					if(Objects.nonNull(pooled)) {
+						break;
+					}
+
+					if(totalConnections < maxSize) {
+						totalConnections++;
+						create = true;
+						break;
+					}
+
+					long remaining = deadline - System.nanoTime();
+
+					if(remaining <= 0) {
+						timeouts.incrementAndGet();
+						throw new DbException("Timed out after " + acquireTimeoutMillis
+								+ "ms waiting for a connection. " + getStats());
+					}
+
+					waiters++;
+
+					try {
+						available.awaitNanos(remaining);
+					}
+					catch(InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new DbException("Interrupted while waiting for a connection.", e);
+					}
+					finally {
+						waiters--;
+					}
+				}
+			}
+			finally {
+				lock.unlock();
+			}
+
+			if(create) {
+				pooled = openConnection();
+			}
+			else if(!validate(pooled)) {
+				destroy(pooled);
+				continue;
+			}
+
+			return checkOut(pooled, start);
+		}
+	}
+
+	/**
+	 * Borrows several connections at once, without waiting: either all of them are free now (idle,
+	 * or the pool may still open them) or none is taken. A caller that needs several connections at
+	 * the same time must use this instead of repeated {@link #getConnection()} calls; holding some
+	 * connections while waiting for the rest deadlocks when concurrent callers each hold part of
+	 * the pool.
+	 *
+	 * @param count The number of connections.
+	 * @return The connections, or an empty list if that many are not free right now.
+	 * @throws DbException Thrown if a new connection cannot be opened. Nothing stays borrowed.
+	 */
+	public List<Connection> tryGetConnections(int count) {
+		if(count < 1 || count > maxSize) {
+			throw new IllegalArgumentException("Cannot borrow " + count
+					+ " connections from a pool of at most " + maxSize);
+		}
+
+		long start = System.nanoTime();
+		List<PooledConnection> borrowed = new ArrayList<>(count);
+		int freeSlots;
+
+		lock.lock();
+
+		try {
+			if(closed) {
+				throw new DbException("The connection pool has been closed.");
+			}
+
+			if(idle.size() + maxSize - totalConnections < count) {
+				return List.of();
+			}
+
+			while(borrowed.size() < count && !idle.isEmpty()) {
+				borrowed.add(idle.pollFirst());
+			}
+
+			freeSlots = count - borrowed.size();
+			totalConnections += freeSlots;
+		}
+		finally {
+			lock.unlock();
+		}
+
+		try {
+			for(Iterator<PooledConnection> it = borrowed.iterator(); it.hasNext();) {
+				PooledConnection pooled = it.next();
+
+				if(!validate(pooled)) {
+					/* A replacement is opened in the stale connection's slot below. */
+					it.remove();
+					discard(pooled);
+					freeSlots++;
+				}
+			}
+
+			while(freeSlots > 0) {
+				freeSlots--;
+				borrowed.add(openConnection());
+			}
+		}
+		catch(RuntimeException e) {
+			borrowed.forEach(this::release);
+
+			for(; freeSlots > 0; freeSlots--) {
+				releaseSlot();
+			}
+
+			throw e;
+		}
+
+		List<Connection> handles = new ArrayList<>(count);
+
+		for(PooledConnection pooled : borrowed) {
+			handles.add(checkOut(pooled, start));
+		}
+
+		return handles;
+	}
+
+	/**
+	 * @return A point-in-time snapshot of the pool counters.
+	 */
+	public Stats getStats() {
+		lock.lock();
+
+		try {
+			return new Stats(totalConnections, idle.size(), inUse.size(), waiters, acquired.get(),
+					created.get(), destroyed.get(), timeouts.get(), leaksDetected.get(),
+					acquireNanos.get(), lastLeak);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return The maximum number of connections this pool will open.
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Closes all idle connections and stops the housekeeping thread. Connections that are checked
+	 * out are closed when they are returned.
+	 */
+	@Override
+	public void close() {
+		Deque<PooledConnection> toClose;
+
+		lock.lock();
+
+		try {
+			closed = true;
+			toClose = new ArrayDeque<>(idle);
+			idle.clear();
+			available.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+
+		housekeeper.shutdownNow();
+		toClose.forEach(this::destroy);
+	}
+
+	private Connection checkOut(PooledConnection pooled, long start) {
+		pooled.checkedOutAt = System.currentTimeMillis();
+		pooled.leakReported = false;
+		pooled.borrowTrace = leakThresholdMillis > 0 ? new Throwable("Connection acquired here") : null;
+		inUse.add(pooled);
+
+		long elapsed = System.nanoTime() - start;
+		acquired.incrementAndGet();
+		acquireNanos.addAndGet(elapsed);
+		DaoMetrics.recordConnectionAcquire(elapsed);
+
+		return pooled.newHandle();
+	}
+
+	private PooledConnection openConnection() {
+		try {
+			Connection physical = DriverManager.getConnection(url);
+			created.incrementAndGet();
+			return new PooledConnection(physical);
+		}
+		catch(SQLException e) {
+			releaseSlot();
+			throw new DbException("Unable to get connection at " + redact(url), e);
+		}
+	}
+
+	private boolean validate(PooledConnection pooled) {
+		if(System.currentTimeMillis() - pooled.lastUsed < VALIDATION_INTERVAL_MILLIS) {
+			return true;
+		}
+
+		try {
+			return pooled.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+		}
+		catch(SQLException e) {
+			return false;
+		}
+	}
+
+	/*
+	 * Called when a handle is closed. The connection is reset to auto-commit so the next borrower
+	 * sees a clean session, then put back on the idle stack.
+	 */
+	private void release(PooledConnection pooled) {
+		inUse.remove(pooled);
+		pooled.lastUsed = System.currentTimeMillis();
+
+		if(!pooled.broken) {
+			try {
+				if(!pooled.physical.getAutoCommit()) {
+					pooled.physical.rollback();
+					pooled.physical.setAutoCommit(true);
+				}
+			}
+			catch(SQLException e) {
+				pooled.broken = true;
+			}
+		}
+
+		lock.lock();
+
+		try {
+			if(!closed && !pooled.broken) {
+				idle.offerFirst(pooled);
+				available.signal();
+				return;
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+
+		destroy(pooled);
+	}
+
+	private void destroy(PooledConnection pooled) {
+		discard(pooled);
+		releaseSlot();
+	}
+
+	/*
+	 * Closes the physical connection but keeps its slot in totalConnections.
+	 */
+	private void discard(PooledConnection pooled) {
+		pooled.statementCache.close();
+
+		try {
+			pooled.physical.close();
+		}
+		catch(SQLException e) {
+			/* The connection is being discarded anyway. */
+		}
+
+		destroyed.incrementAndGet();
+	}
+
+	private void releaseSlot() {
+		lock.lock();
+
+		try {
+			totalConnections--;
+			available.signal();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private void housekeeping() {
+		evictIdle();
+		fillToMinimum();
+		detectLeaks();
+	}
+
+	private void evictIdle() {
+		Deque<PooledConnection> evicted = new ArrayDeque<>();
+		long now = System.currentTimeMillis();
+
+		lock.lock();
+
+		try {
+			/* The oldest idle connections are at the end of the stack. */
+			Iterator<PooledConnection> it = idle.descendingIterator();
+
+			while(it.hasNext() && totalConnections - evicted.size() > minSize) {
+				PooledConnection pooled = it.next();
+
+				if(now - pooled.lastUsed > idleTimeoutMillis) {
+					it.remove();
+					evicted.add(pooled);
+				}
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+
+		evicted.forEach(this::destroy);
+	}
+
+	private void fillToMinimum() {
+		while(true) {
+			lock.lock();
+
+			try {
+				if(closed || totalConnections >= minSize) {
+					return;
+				}
+
+				totalConnections++;
+			}
+			finally {
+				lock.unlock();
+			}
+
+			PooledConnection pooled;
+
+			try {
+				pooled = openConnection();
+			}
+			catch(DbException e) {
+				/* The database may be down. Connections are opened on demand instead. */
+				return;
+			}
+
+			release(pooled);
+		}
+	}
+
+	private void detectLeaks() {
+		if(leakThresholdMillis <= 0) {
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+
+		for(PooledConnection pooled : inUse) {
+			if(!pooled.leakReported && now - pooled.checkedOutAt > leakThresholdMillis) {
+				pooled.leakReported = true;
+				leaksDetected.incrementAndGet();
+
+				lastLeak = new Throwable("Possible connection leak: connection held for "
+						+ (now - pooled.checkedOutAt) + "ms", pooled.borrowTrace);
+			}
+		}
+	}
+
+	private static String redact(String url) {
+		return url.replaceAll("password=[^&]*", "password=****");
+	}
+
+	/**
+	 * A snapshot of the pool counters.
+	 *
+	 * @param total Open physical connections.
+	 * @param idle Connections waiting in the pool.
+	 * @param active Connections currently checked out.
+	 * @param waiting Threads currently waiting for a connection.
+	 * @param acquired Total successful checkouts.
+	 * @param created Total physical connections opened.
+	 * @param destroyed Total physical connections closed.
+	 * @param timeouts Total checkouts that timed out.
+	 * @param leaksDetected Total connections reported as possible leaks.
+	 * @param acquireNanos Total time spent in {@link ConnectionPool#getConnection()}.
+	 * @param lastLeak The most recent possible leak, with the stack trace of the checkout as its
+	 *        cause, or null. The pool prints nothing; callers decide whether to log it.
+	 */
+	public record Stats(int total, int idle, int active, int waiting, long acquired, long created,
+			long destroyed, long timeouts, long leaksDetected, long acquireNanos,
+			Throwable lastLeak) {
+
+		/**
+		 * @return The mean time to acquire a connection in microseconds.
+		 */
+		public double meanAcquireMicros() {
+			return acquired == 0 ? 0 : acquireNanos / 1_000.0 / acquired;
+		}
+	}
+
+	/*
+	 * A physical connection plus its bookkeeping. Each checkout gets a fresh handle so that a stale
+	 * handle kept by a caller cannot close the connection out from under the next borrower.
+	 */
+	private class PooledConnection {
+		private final Connection physical;
+		private final StatementCache statementCache;
+		private volatile long lastUsed = System.currentTimeMillis();
+		private volatile long checkedOutAt;
+		private volatile boolean leakReported;
+		private volatile Throwable borrowTrace;
+		private volatile boolean broken;
+
+		private PooledConnection(Connection physical) {
+			this.physical = physical;
+			this.statementCache = new StatementCache(physical, statementCacheSize);
+		}
+
+		private Connection newHandle() {
+			return (Connection)Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+					new Class<?>[] {Connection.class, StatementCache.Source.class}, new Handle(this));
+		}
+	}
+
+	private class Handle implements InvocationHandler {
+		private final PooledConnection pooled;
+		private boolean released;
+
+		private Handle(PooledConnection pooled) {
+			this.pooled = pooled;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch(method.getName()) {
+				case "close":
+					if(!released) {
+						released = true;
+						release(pooled);
+					}
+					return null;
+
+				case "isClosed":
+					return released || pooled.physical.isClosed();
+
+				case "equals":
+					return proxy == args[0];
+
+				case "hashCode":
+					return System.identityHashCode(proxy);
+
+				case "toString":
+					return "Pooled" + pooled.physical;
+
+				default:
+					break;
+			}
+
+			if(released) {
+				throw new SQLException("Connection has been returned to the pool.", "08003");
+			}
+
+			if(method.getDeclaringClass() == StatementCache.Source.class) {
+				return pooled.statementCache;
+			}
+
+			try {
+				return method.invoke(pooled.physical, args);
+			}
+			catch(InvocationTargetException e) {
+				Throwable cause = e.getCause();
+
+				/* SQL state class 08 is a connection exception. Don't return it to the pool. */
+				if(cause instanceof SQLException sqlException
+						&& Objects.nonNull(sqlException.getSQLState())
+						&& sqlException.getSQLState().startsWith("08")) {
+					pooled.broken = true;
+				}
+
+				throw cause;
+			}
+		}
+	}
+}
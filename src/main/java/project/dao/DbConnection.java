@@ -1,10 +1,11 @@
 package project.dao;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import project.exception.DbException;
+import provided.util.DaoMetrics;
 
 public class DbConnection {
 
@@ -14,22 +15,116 @@ public class DbConnection {
 	private static final String HOST = "localhost";
 	private static final int PORT = 3306;
 
+	//pool sizing and timeouts
+	private static final int POOL_MIN_SIZE = 2;
+	private static final int POOL_MAX_SIZE = 10;
+	private static final long POOL_IDLE_TIMEOUT_MILLIS = 60_000;
+	private static final long POOL_ACQUIRE_TIMEOUT_MILLIS = 10_000;
+	private static final long POOL_LEAK_THRESHOLD_MILLIS = 30_000;
+	private static final int STATEMENT_CACHE_SIZE = 64;
+
+	//work that must use the database before the pool closes at JVM shutdown, e.g. pending writes
+	private static final List<Runnable> SHUTDOWN_TASKS = new CopyOnWriteArrayList<>();
+	private static volatile boolean poolCreated;
+
+	static {
+		Runtime.getRuntime()
+				.addShutdownHook(new Thread(DbConnection::shutdown, "connection-pool-shutdown"));
+	}
+
+	/*
+	 * The pool is created the first time a connection is requested (holder idiom), so merely
+	 * loading this class does not touch the database.
+	 */
+	private static class PoolHolder {
+		private static final ConnectionPool POOL = createPool();
+	}
+
+	/**
+	 * Borrows a connection from the shared pool. Closing the connection returns it to the pool, so
+	 * callers should continue to use try-with-resources.
+	 *
+	 * @return A pooled connection.
+	 * @throws DbException Thrown if a connection cannot be obtained.
+	 */
 	public static Connection getConnection() {
+		return PoolHolder.POOL.getConnection();
+	}
+
+	/**
+	 * Borrows several connections from the shared pool at once, without waiting.
+	 *
+	 * @param count The number of connections.
+	 * @return The connections, or an empty list if that many are not free right now.
+	 * @throws DbException Thrown if a new connection cannot be opened.
+	 */
+	public static List<Connection> tryGetConnections(int count) {
+		return PoolHolder.POOL.tryGetConnections(count);
+	}
+
+	/**
+	 * @return The maximum number of pooled connections. Reading it does not create the pool.
+	 */
+	public static int getMaxPoolSize() {
+		return POOL_MAX_SIZE;
+	}
+
+	/**
+	 * @return The shared connection pool, for statistics and shutdown.
+	 */
+	public static ConnectionPool getPool() {
+		return PoolHolder.POOL;
+	}
+
+	/**
+	 * Registers work to run at JVM shutdown while connections can still be borrowed. Tasks run in
+	 * registration order, before the pool is closed.
+	 *
+	 * @param task The task. A task that throws does not stop the others; its failure is reported
+	 *        on standard error and recorded in {@link DaoMetrics} as a failed "shutdownTask"
+	 *        operation.
+	 */
+	public static void addShutdownTask(Runnable task) {
+		SHUTDOWN_TASKS.add(task);
+	}
+
+	private static void shutdown() {
+		for(Runnable task : SHUTDOWN_TASKS) {
+			long start = System.nanoTime();
+			boolean failed = false;
+
+			try {
+				task.run();
+			}
+			catch(RuntimeException e) {
+				/* The JVM is exiting, so this is the only report of, e.g., unwritten updates. */
+				failed = true;
+				System.err.println("Shutdown task failed: " + e.getMessage());
+			}
+			finally {
+				DaoMetrics.recordOperation("shutdownTask", System.nanoTime() - start, failed);
+			}
+		}
+
+		if(poolCreated) {
+			PoolHolder.POOL.close();
+		}
+	}
+
+	private static ConnectionPool createPool() {
 		//the formatted here with the specifiers parameter first host,port, schema, user, password
-	    String url = String.format("jdbc:mysql://%s:%d/%s?user=%s&password=%s&useSSL=false",
+		//rewriteBatchedStatements lets the driver send a JDBC batch of inserts as multi-row INSERTs
+		//useServerPrepStmts has the server parse each statement once; the pool caches the statements
+	    String url = String.format("jdbc:mysql://%s:%d/%s?user=%s&password=%s&useSSL=false"
+	    		+ "&rewriteBatchedStatements=true&useServerPrepStmts=true",
 	            HOST, PORT, SCHEMA, USER, PASSWORD);
-	    
-	    System.out.println("Connecting with url=" + url);
-	    
-	    try {
-	        Connection conn = DriverManager.getConnection(url);
-	        System.out.println("Successfully obtained connection!");
-	        return conn;
-	        
-	    } catch (SQLException e) {
-	    	System.out.println("Unable to get connection at" + url);
-	        throw new DbException("Unable to get connection at \" +url");
-	    }
+
+	    ConnectionPool pool = new ConnectionPool(url, POOL_MIN_SIZE, POOL_MAX_SIZE,
+	    		POOL_IDLE_TIMEOUT_MILLIS, POOL_ACQUIRE_TIMEOUT_MILLIS, POOL_LEAK_THRESHOLD_MILLIS,
+	    		STATEMENT_CACHE_SIZE);
+
+	    poolCreated = true;
+	    return pool;
 	}
 
 }
@@ -0,0 +1,10 @@
+package project.dao;
+
+/**
+ * One bar of the difficulty histogram returned by {@link ProjectDao#fetchDifficultyHistogram()}.
+ *
+ * @param difficulty The difficulty, or null for projects without one
+ * @param projectCount The number of projects with that difficulty
+ */
+public record DifficultyCount(Integer difficulty, int projectCount) {
+}
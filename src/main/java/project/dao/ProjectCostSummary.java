@@ -0,0 +1,16 @@
+package project.dao;
+
+import java.math.BigDecimal;
+
+/**
+ * The material cost of one project, returned by {@link ProjectDao#fetchProjectCosts()}.
+ *
+ * @param projectId The project ID
+ * @param projectName The project name
+ * @param materialCount The number of material rows
+ * @param totalCost The sum of num_required * cost over the materials. Materials without a count
+ *        or cost are left out. Zero if there are none.
+ */
+public record ProjectCostSummary(int projectId, String projectName, int materialCount,
+		BigDecimal totalCost) {
+}
@@ -5,16 +5,36 @@ import java.sql.Connection;   //managing SQL connections
 import java.sql.PreparedStatement;  //executing pre-compiled SQL statements
 import java.sql.ResultSet;         //handling SQL query results
 import java.sql.SQLException;      //handling SQL exceptions
-import java.util.LinkedList;      //For using a linked list implementation
+import java.sql.Statement;
+import java.util.ArrayList;       //For building child lists
+import java.util.Collection;      //For batches of IDs
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;            //For using lists
+import java.util.ListIterator;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;         //For null checks
 import java.util.Optional;        //For optional values 
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import project.entity.Category;   //category entity class
 import project.entity.Material;   //material entity class
 import project.entity.Project;    //project entity class
 import project.entity.Step;       //step entity class
 import project.exception.DbException;  //custom data exceptions
+import project.exception.OptimisticLockException;
 import provided.util.DaoBase;         //DAO utilities that provide common functionality
+import provided.util.RowMapper;
+import provided.util.SlowQueryLog;
 
 
 //This class uses JDBC to perform CRUD operations on the project tables.
@@ -25,6 +45,318 @@ public class ProjectDao extends DaoBase {
 	private static final String PROJECT_TABLE = "project";
 	private static final String PROJECT_CATEGORY_TABLE = "project_category";
 	private static final String STEP_TABLE = "step";
+
+	//Projects waiting to be purged are hidden from every read and write
+	private static final String NOT_PURGED = "purge_requested_at IS NULL";
+
+	//SQL is kept in constants so each statement is parsed once and then reused from the statement cache
+	private static final String FETCH_ALL_PROJECTS_SQL =
+			"SELECT * FROM " + PROJECT_TABLE + " WHERE " + NOT_PURGED + " ORDER BY project_name";
+
+	private static final String FETCH_PROJECT_SQL =
+			"SELECT * FROM " + PROJECT_TABLE + " WHERE project_id = ? AND " + NOT_PURGED;
+
+	//Category names are resolved from the shared dictionary, so only the link rows are read
+	private static final String FETCH_CATEGORIES_SQL = "SELECT category_id FROM "
+			+ PROJECT_CATEGORY_TABLE + " WHERE project_id = ? ORDER BY category_id";
+
+	private static final String FETCH_STEPS_SQL =
+			"SELECT * FROM " + STEP_TABLE + " WHERE project_id = ? ORDER BY step_order, step_id";
+
+	private static final String FETCH_MATERIALS_SQL =
+			"SELECT * FROM " + MATERIAL_TABLE + " WHERE project_id = ?";
+
+	//Every change to a project or its child rows increments the project's version
+	//@formatter:off
+	private static final String MODIFY_PROJECT_SQL = ""
+			+ "UPDATE " + PROJECT_TABLE + " SET "
+			+ "project_name = ?, "
+			+ "estimated_hours = ?, "
+			+ "actual_hours = ?, "
+			+ "difficulty = ?, "
+			+ "notes = ?, "
+			+ "version = version + 1 "
+			+ "WHERE project_id = ? AND " + NOT_PURGED;
+	//@formatter:on
+
+	//Changes the row only if nobody else has changed it since the caller read the expected version
+	private static final String MODIFY_PROJECT_IF_VERSION_SQL =
+			MODIFY_PROJECT_SQL + " AND version = ?";
+
+	private static final String FETCH_PROJECT_VERSION_SQL =
+			"SELECT version FROM " + PROJECT_TABLE + " WHERE project_id = ? AND " + NOT_PURGED;
+
+	//The version of a new project row, as set by the column default
+	private static final int INITIAL_VERSION = 1;
+
+	//Partial UPDATE statements keyed by a bit per changed column, plus a bit for the version check
+	private static final Map<Integer, String> PARTIAL_UPDATE_SQL = new ConcurrentHashMap<>();
+	private static final int VERSION_CHECK_KEY = 1 << Project.Column.values().length;
+
+	private static final String DELETE_PROJECT_SQL =
+			"DELETE FROM " + PROJECT_TABLE + " WHERE project_id = ? AND " + NOT_PURGED;
+
+	//Reads a project and all of its child rows in one round trip. Bind the project ID four times.
+	//Steps are sorted by step order, the other child rows by ID.
+	//@formatter:off
+	private static final String PROJECT_GRAPH_SQL = ""
+			+ "SELECT 'P' AS row_type, project_id AS row_id, project_name AS row_text, "
+			+ "estimated_hours AS dec_1, actual_hours AS dec_2, difficulty AS int_1, notes, version, "
+			+ "0 AS sort_key "
+			+ "FROM " + PROJECT_TABLE + " WHERE project_id = ? AND " + NOT_PURGED + " "
+			+ "UNION ALL "
+			+ "SELECT 'M', material_id, material_name, cost, NULL, num_required, NULL, NULL, material_id "
+			+ "FROM " + MATERIAL_TABLE + " WHERE project_id = ? "
+			+ "UNION ALL "
+			+ "SELECT 'S', step_id, step_text, NULL, NULL, step_order, NULL, NULL, step_order "
+			+ "FROM " + STEP_TABLE + " WHERE project_id = ? "
+			+ "UNION ALL "
+			+ "SELECT 'C', category_id, NULL, NULL, NULL, NULL, NULL, NULL, category_id "
+			+ "FROM " + PROJECT_CATEGORY_TABLE + " WHERE project_id = ? "
+			+ "ORDER BY row_type, sort_key, row_id";
+	//@formatter:on
+
+	//Keyset pagination over the (project_name, project_id) index, without the notes column
+	private static final String PROJECT_SUMMARY_COLUMNS = ""
+			+ "project_id, project_name, estimated_hours, actual_hours, difficulty, version";
+
+	//@formatter:off
+	private static final String FIRST_PROJECT_PAGE_SQL = ""
+			+ "SELECT " + PROJECT_SUMMARY_COLUMNS + " FROM " + PROJECT_TABLE + " "
+			+ "WHERE " + NOT_PURGED + " "
+			+ "ORDER BY project_name, project_id "
+			+ "LIMIT ?";
+
+	private static final String NEXT_PROJECT_PAGE_SQL = ""
+			+ "SELECT " + PROJECT_SUMMARY_COLUMNS + " FROM " + PROJECT_TABLE + " "
+			+ "WHERE " + NOT_PURGED + " "
+			+ "AND (project_name > ? OR (project_name = ? AND project_id > ?)) "
+			+ "ORDER BY project_name, project_id "
+			+ "LIMIT ?";
+	//@formatter:on
+
+	//Full-text search: the project and step matches are scored separately, then summed per project.
+	//Bind the search text four times, then LIMIT and OFFSET.
+	//@formatter:off
+	private static final String SEARCH_PROJECTS_SQL = ""
+			+ "SELECT " + PROJECT_SUMMARY_COLUMNS + ", SUM(m.score) AS relevance FROM ("
+			+ "SELECT project_id, MATCH (project_name, notes) AGAINST (?) AS score "
+			+ "FROM " + PROJECT_TABLE + " WHERE MATCH (project_name, notes) AGAINST (?) "
+			+ "UNION ALL "
+			+ "SELECT project_id, MATCH (step_text) AGAINST (?) "
+			+ "FROM " + STEP_TABLE + " WHERE MATCH (step_text) AGAINST (?)"
+			+ ") m JOIN " + PROJECT_TABLE + " USING (project_id) "
+			+ "WHERE " + NOT_PURGED + " "
+			+ "GROUP BY project_id "
+			+ "ORDER BY relevance DESC, project_id "
+			+ "LIMIT ? OFFSET ?";
+	//@formatter:on
+
+	//Aggregations computed by the server; only the summary rows are sent back
+	//@formatter:off
+	private static final String PROJECT_COSTS_SQL = ""
+			+ "SELECT p.project_id, p.project_name, COUNT(m.material_id) AS material_count, "
+			+ "COALESCE(SUM(m.num_required * m.cost), 0) AS total_cost "
+			+ "FROM " + PROJECT_TABLE + " p "
+			+ "LEFT JOIN " + MATERIAL_TABLE + " m USING (project_id) ";
+
+	private static final String ALL_PROJECT_COSTS_SQL = PROJECT_COSTS_SQL
+			+ "WHERE p." + NOT_PURGED + " "
+			+ "GROUP BY p.project_id "
+			+ "ORDER BY p.project_id";
+
+	private static final String ONE_PROJECT_COST_SQL = PROJECT_COSTS_SQL
+			+ "WHERE p.project_id = ? AND p." + NOT_PURGED + " "
+			+ "GROUP BY p.project_id";
+
+	private static final String CATEGORY_HOURS_SQL = ""
+			+ "SELECT c.category_id, c.category_name, COUNT(p.project_id) AS project_count, "
+			+ "COALESCE(SUM(p.estimated_hours), 0) AS estimated_hours, "
+			+ "COALESCE(SUM(p.actual_hours), 0) AS actual_hours "
+			+ "FROM " + CATEGORY_TABLE + " c "
+			+ "LEFT JOIN " + PROJECT_CATEGORY_TABLE + " pc USING (category_id) "
+			+ "LEFT JOIN " + PROJECT_TABLE + " p "
+			+ "ON p.project_id = pc.project_id AND p." + NOT_PURGED + " "
+			+ "GROUP BY c.category_id "
+			+ "ORDER BY c.category_name, c.category_id";
+
+	private static final String DIFFICULTY_HISTOGRAM_SQL = ""
+			+ "SELECT difficulty, COUNT(*) AS project_count "
+			+ "FROM " + PROJECT_TABLE + " "
+			+ "WHERE " + NOT_PURGED + " "
+			+ "GROUP BY difficulty "
+			+ "ORDER BY difficulty";
+	//@formatter:on
+
+	//@formatter:off
+	private static final String INSERT_PROJECT_SQL = ""
+			+ "INSERT INTO " + PROJECT_TABLE + " "
+			+ "(project_name, estimated_hours, actual_hours, difficulty, notes) "
+			+ "VALUES (?, ?, ?, ?, ?)";
+
+	private static final String INSERT_MATERIAL_SQL = ""
+			+ "INSERT INTO " + MATERIAL_TABLE + " "
+			+ "(project_id, material_name, num_required, cost) "
+			+ "VALUES (?, ?, ?, ?)";
+
+	private static final String INSERT_STEP_SQL = ""
+			+ "INSERT INTO " + STEP_TABLE + " "
+			+ "(project_id, step_text, step_order) "
+			+ "VALUES (?, ?, ?)";
+
+	private static final String INSERT_PROJECT_CATEGORY_SQL = ""
+			+ "INSERT INTO " + PROJECT_CATEGORY_TABLE + " "
+			+ "(project_id, category_id) "
+			+ "VALUES (?, ?)";
+	//@formatter:on
+
+	//Child rows are replaced by deleting them and inserting the new rows in the same transaction
+	private static final String DELETE_MATERIALS_SQL =
+			"DELETE FROM " + MATERIAL_TABLE + " WHERE project_id = ?";
+
+	private static final String DELETE_STEPS_SQL =
+			"DELETE FROM " + STEP_TABLE + " WHERE project_id = ?";
+
+	private static final String DELETE_PROJECT_CATEGORIES_SQL =
+			"DELETE FROM " + PROJECT_CATEGORY_TABLE + " WHERE project_id = ?";
+
+	//Steps are ranked with gaps between their step orders, so a step can be put between two others
+	//by giving it the rank halfway between them. Only when two neighbors have no gap left are the
+	//project's steps renumbered. Ties are broken by step ID.
+	private static final int STEP_ORDER_GAP = 1024;
+
+	//Step ID 0 is never generated, so binding it as the skipped step skips nothing
+	private static final int NO_STEP = 0;
+
+	private static final String MAX_STEP_ORDER_SQL =
+			"SELECT MAX(step_order) FROM " + STEP_TABLE + " WHERE project_id = ?";
+
+	//@formatter:off
+	private static final String STEP_NEIGHBORS_SQL = ""
+			+ "SELECT step_order FROM " + STEP_TABLE + " "
+			+ "WHERE project_id = ? AND step_id <> ? "
+			+ "ORDER BY step_order, step_id LIMIT ? OFFSET ?";
+
+	private static final String STEP_IDS_IN_ORDER_SQL = ""
+			+ "SELECT step_id FROM " + STEP_TABLE + " "
+			+ "WHERE project_id = ? ORDER BY step_order, step_id";
+	//@formatter:on
+
+	private static final String UPDATE_STEP_ORDER_SQL =
+			"UPDATE " + STEP_TABLE + " SET step_order = ? WHERE step_id = ? AND project_id = ?";
+
+	private static final String DELETE_STEP_SQL =
+			"DELETE FROM " + STEP_TABLE + " WHERE step_id = ? AND project_id = ?";
+
+	private static final String LOCK_STEP_SQL =
+			"SELECT step_id FROM " + STEP_TABLE + " WHERE step_id = ? AND project_id = ? FOR UPDATE";
+
+	//Lock the project row so concurrent changes to its child rows run one after the other. Touching
+	//the row also increments its version.
+	private static final String LOCK_PROJECT_SQL = "SELECT version FROM " + PROJECT_TABLE
+			+ " WHERE project_id = ? AND " + NOT_PURGED + " FOR UPDATE";
+
+	private static final String TOUCH_PROJECT_SQL = "UPDATE " + PROJECT_TABLE
+			+ " SET version = version + 1 WHERE project_id = ? AND " + NOT_PURGED;
+
+	//Purging hides a project at once, then deletes its child rows a chunk at a time in short
+	//transactions, and finally the project row. The flag survives a crash, so a purge can resume.
+	//@formatter:off
+	private static final String REQUEST_PURGE_SQL = ""
+			+ "UPDATE " + PROJECT_TABLE + " "
+			+ "SET purge_requested_at = CURRENT_TIMESTAMP, version = version + 1 "
+			+ "WHERE project_id = ? AND " + NOT_PURGED;
+
+	private static final String FETCH_PURGE_REQUESTS_SQL = ""
+			+ "SELECT project_id FROM " + PROJECT_TABLE + " "
+			+ "WHERE purge_requested_at IS NOT NULL "
+			+ "ORDER BY purge_requested_at, project_id";
+
+	//Each chunk follows the order of the index the rows are found by. Bind the project ID and LIMIT.
+	private static final List<String> PURGE_CHILD_ROWS_SQL = List.of(
+			"DELETE FROM " + PROJECT_CATEGORY_TABLE + " WHERE project_id = ? "
+					+ "ORDER BY category_id LIMIT ?",
+			"DELETE FROM " + STEP_TABLE + " WHERE project_id = ? "
+					+ "ORDER BY step_order, step_id LIMIT ?",
+			"DELETE FROM " + MATERIAL_TABLE + " WHERE project_id = ? "
+					+ "ORDER BY material_id LIMIT ?");
+
+	//Locks a hidden project for one chunk; a project that is not hidden is never purged
+	private static final String LOCK_PURGED_PROJECT_SQL = ""
+			+ "SELECT 1 FROM " + PROJECT_TABLE + " "
+			+ "WHERE project_id = ? AND purge_requested_at IS NOT NULL FOR UPDATE";
+
+	private static final String DELETE_PURGED_PROJECT_SQL = ""
+			+ "DELETE FROM " + PROJECT_TABLE + " "
+			+ "WHERE project_id = ? AND purge_requested_at IS NOT NULL";
+	//@formatter:on
+
+	//Connections borrowed together by the PARALLEL load modes: the project row and three child tables
+	private static final int PARALLEL_CONNECTIONS = 4;
+
+	//Runs the concurrent child reads of the PARALLEL load modes; virtual threads need no shutdown
+	private static final ExecutorService PARALLEL_EXECUTOR =
+			Executors.newVirtualThreadPerTaskExecutor();
+
+	//Category rows shared by every DAO; project loads read only the category IDs
+	private static final CategoryDictionary CATEGORIES = new CategoryDictionary();
+
+	//Metric names for fetchProjectById, built once so the call does not concatenate strings
+	private static final Map<ProjectLoadMode, String> FETCH_BY_ID_OPERATIONS =
+			new EnumMap<>(ProjectLoadMode.class);
+
+	static {
+		for(ProjectLoadMode mode : ProjectLoadMode.values()) {
+			FETCH_BY_ID_OPERATIONS.put(mode, "fetchProjectById[" + mode + "]");
+		}
+	}
+
+	private static final int DEFAULT_BATCH_SIZE = 500;
+	private static final int DEFAULT_IMPORT_CHUNK_SIZE = 1000;
+
+	//IN (...) lists have 1, 8, 64, 512 or 4096 parameters, padded with a repeated ID
+	private static final int IN_LIST_GROWTH = 8;
+	private static final int MAX_IN_LIST_BUCKET = 4096;
+
+	private ProjectLoadMode loadMode = ProjectLoadMode.SEQUENTIAL;
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	private int importChunkSize = DEFAULT_IMPORT_CHUNK_SIZE;
+
+	/**
+	 * Sets the load mode used by {@link #fetchProjectById(Integer)}.
+	 * 
+	 * @param loadMode The mode to use when no mode is given
+	 */
+	public void setLoadMode(ProjectLoadMode loadMode) {
+		this.loadMode = Objects.requireNonNull(loadMode);
+	}
+
+	/**
+	 * Sets the maximum number of project IDs sent in one IN (...) list by
+	 * {@link #fetchProjectsById(Collection)}.
+	 * 
+	 * @param batchSize The chunk size, at least 1
+	 */
+	public void setBatchSize(int batchSize) {
+		if(batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+		}
+
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Sets the number of projects inserted per transaction by {@link #insertProjects(Stream)}.
+	 * 
+	 * @param importChunkSize The chunk size, at least 1
+	 */
+	public void setImportChunkSize(int importChunkSize) {
+		if(importChunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size must be at least 1: " + importChunkSize);
+		}
+
+		this.importChunkSize = importChunkSize;
+	}
 	
 	/**Insert a project row into the project table.
 	 * @param project object with the primary key
@@ -33,125 +365,1608 @@ public class ProjectDao extends DaoBase {
 	 * @throws DbException Thrown if an error occurs inserting the row
 	 */
 	public Project insertProject(Project project) {
-		//SQL query to insert a new project into the PROJECT_TABLE
-		//@formatter:off
-		String sql = ""
-				+ " INSERT INTO " + PROJECT_TABLE + " "
-				+ " (project_name, estimated_hours, actual_hours, difficulty, notes) "
-				+ " VALUES "
-				+ " (?, ?, ?, ?, ?) ";
-		//@formatter:on
-		
-		//Establish a database connection
-		try(Connection conn= DbConnection.getConnection()){
-			startTransaction(conn);   //Start a new database transaction 
+		return instrument("insertProject", () -> {
+			//Establish a database connection
+			try(Connection conn= DbConnection.getConnection()){
+				startTransaction(conn);   //Start a new database transaction 
 			
-			//Prepare the SQL statement for execution
-			try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+				//Prepare the SQL statement so that the driver returns the generated primary key
+				try(PreparedStatement stmt = prepareInsert(conn, INSERT_PROJECT_SQL)) {
 				
-		//Set the parameters for the prepared statement from the projects object
+			//Set the parameters for the prepared statement from the projects object
 				
-				setParameter(stmt, 1, project.getProjectName(), String.class);
-				setParameter(stmt, 2, project.getEstimatedHours(), BigDecimal.class);
-				setParameter(stmt, 3, project.getActualHours(), BigDecimal.class);
-				setParameter(stmt, 4, project.getDifficulty(), Integer.class);
-				setParameter(stmt, 5, project.getNotes(), String.class);
+					setParameter(stmt, 1, project.getProjectName(), String.class);
+					setParameter(stmt, 2, project.getEstimatedHours(), BigDecimal.class);
+					setParameter(stmt, 3, project.getActualHours(), BigDecimal.class);
+					setParameter(stmt, 4, project.getDifficulty(), Integer.class);
+					setParameter(stmt, 5, project.getNotes(), String.class);
 				
-				//Executes the update, which inserts the project into the database
-				stmt.executeUpdate();
+					//Executes the update, which inserts the project into the database
+					stmt.executeUpdate();
 				
-				//Retrieves the last inserted project's ID
-				Integer projectId = getLastInsertId(conn, PROJECT_TABLE);
-				commitTransaction(conn);
+					//Reads the new project's ID from the insert's own response
+					Integer projectId = getGeneratedId(stmt);
+					commitTransaction(conn);
 				
-				//Sets the project ID in the project object and returns it
-				project.setProjectId(projectId);
-				return project;
+					//Sets the project ID and version in the project object and returns it
+					project.setProjectId(projectId);
+					project.setVersion(INITIAL_VERSION);
+					project.clearChanges();
+					return project;
+				}
+				catch(Exception e) {
+					rollbackTransaction(conn);   //Rollback the transaction in case of an error
+					throw new DbException(e);  //wrap and throws a custom exception
+				}
 			}
-			catch(Exception e) {
-				rollbackTransaction(conn);   //Rollback the transaction in case of an error
-				throw new DbException(e);  //wrap and throws a custom exception
+			catch(SQLException e) {
+				throw new DbException(e);  //wrap and throw a custom exception for SQL errors
 			}
-		}
-		catch(SQLException e) {
-			throw new DbException(e);  //wrap and throw a custom exception for SQL errors
-		}
+		});
 	}
 	  
 	 public List<Project> fetchAllProjects() {
-		    String sql = "SELECT * FROM " + PROJECT_TABLE + " ORDER BY project_name";
+		    return instrument("fetchAllProjects", () -> {
+			    try(Connection conn = DbConnection.getConnection()) {
+			      startTransaction(conn);
+
+			      try(PreparedStatement stmt = prepareStatement(conn, FETCH_ALL_PROJECTS_SQL)) {
+			        try(ResultSet rs = stmt.executeQuery()) {
+			          return extractAll(rs, Project.class);
+			        }
+			      }
+			      catch(Exception e) {
+			        rollbackTransaction(conn);
+			        throw new DbException(e);
+			      }
+			    }
+			    catch(SQLException e) {
+			      throw new DbException(e);
+			    }
+		    });
+		  }
+	
+	 /**
+	  * Inserts many projects, including their materials, steps and category links. Rows are sent
+	  * with JDBC batches (rewritten by the driver into multi-row INSERTs) and committed once per
+	  * chunk of projects. The generated primary keys are set on the projects, materials and steps,
+	  * and the project ID is set on every material and step. Categories are linked by their
+	  * existing category ID and replaced with the shared instances, names included.
+	  * 
+	  * If a chunk fails it is rolled back and a DbException is thrown; earlier chunks stay
+	  * committed.
+	  * 
+	  * @param projects The projects to insert
+	  * @return The inserted projects, with their keys set
+	  */
+	 public List<Project> insertProjects(Collection<Project> projects) {
+		    insertProjects(projects.stream());
+		    return new ArrayList<>(projects);
+		  }
+
+	 /**
+	  * Inserts a stream of projects in chunks. See {@link #insertProjects(Collection)}. Only one
+	  * chunk is held in memory at a time.
+	  * 
+	  * @param projects The projects to insert
+	  * @return The number of projects inserted
+	  */
+	 public int insertProjects(Stream<Project> projects) {
+		    return insertProjects(projects, chunk -> {});
+		  }
+
+	 /**
+	  * Inserts a stream of projects in chunks, handing each chunk to a callback once it is
+	  * committed, with the generated keys set. See {@link #insertProjects(Collection)}.
+	  * 
+	  * @param projects The projects to insert
+	  * @param onCommit Called with each committed chunk. The list is reused afterward.
+	  * @return The number of projects inserted
+	  */
+	 public int insertProjects(Stream<Project> projects, Consumer<List<Project>> onCommit) {
+		    return instrument("insertProjects", () -> {
+			    int inserted = 0;
+
+			    try(Connection conn = DbConnection.getConnection()) {
+			      startTransaction(conn);
+
+			      Iterator<Project> it = projects.iterator();
+			      List<Project> chunk = new ArrayList<>(importChunkSize);
+
+			      while(it.hasNext()) {
+			        chunk.add(it.next());
+
+			        if(chunk.size() == importChunkSize || !it.hasNext()) {
+			          try {
+			            insertProjectChunk(conn, chunk);
+			            commitTransaction(conn);
+			          }
+			          catch(Exception e) {
+			            rollbackTransaction(conn);
+			            throw new DbException(e);
+			          }
+
+			          inserted += chunk.size();
+			          onCommit.accept(chunk);
+			          chunk.clear();
+			        }
+			      }
+
+			      return inserted;
+			    }
+			    catch(SQLException e) {
+			      throw new DbException(e);
+			    }
+		    });
+		  }
+
+	 /**
+	  * Inserts one chunk of projects and their child rows with one batch per table
+	  * 
+	  * @param conn
+	  * @param projects
+	  * @throws SQLException
+	  */
+	 private void insertProjectChunk(Connection conn, List<Project> projects) throws SQLException {
+		    try(PreparedStatement stmt =
+		        prepareInsert(conn, INSERT_PROJECT_SQL)) {
+		      for(Project project : projects) {
+		        setParameter(stmt, 1, project.getProjectName(), String.class);
+		        setParameter(stmt, 2, project.getEstimatedHours(), BigDecimal.class);
+		        setParameter(stmt, 3, project.getActualHours(), BigDecimal.class);
+		        setParameter(stmt, 4, project.getDifficulty(), Integer.class);
+		        setParameter(stmt, 5, project.getNotes(), String.class);
+		        stmt.addBatch();
+		      }
+
+		      stmt.executeBatch();
+		      setGeneratedIds(stmt, projects, Project::setProjectId);
+		    }
+
+		    for(Project project : projects) {
+		      project.setVersion(INITIAL_VERSION);
+		      project.clearChanges();
+		    }
+
+		    List<Material> materials = new ArrayList<>();
+		    List<Step> steps = new ArrayList<>();
+
+		    for(Project project : projects) {
+		      materials.addAll(ownMaterials(project.getProjectId(), project.getMaterials()));
+		      steps.addAll(ownSteps(project.getProjectId(), project.getSteps(), 0));
+		    }
+
+		    insertMaterials(conn, materials);
+		    insertSteps(conn, steps);
+
+		    try(PreparedStatement stmt = prepareStatement(conn, INSERT_PROJECT_CATEGORY_SQL)) {
+		      int links = 0;
+
+		      for(Project project : projects) {
+		        links += addCategoryLinks(stmt, project.getProjectId(), project.getCategories());
+		      }
+
+		      if(links > 0) {
+		        stmt.executeBatch();
+		      }
+		    }
+
+		    for(Project project : projects) {
+		      resolveCategories(conn, project);
+		    }
+		  }
+
+	 /**
+	  * Adds materials to a project with one batched INSERT in a single transaction. The generated
+	  * material IDs and the project ID are set on the materials.
+	  * 
+	  * @param projectId The project ID
+	  * @param materials The new materials
+	  * @return The inserted materials
+	  * @throws DbException Thrown if the project does not exist or the insert fails
+	  */
+	 public List<Material> addMaterials(Integer projectId, Collection<Material> materials) {
+		    return instrument("addMaterials", () -> inTransaction(conn -> {
+		      List<Material> owned = ownMaterials(projectId, materials);
+
+		      touchProject(conn, projectId);
+		      insertMaterials(conn, owned);
+		      return owned;
+		    }));
+		  }
+
+	 /**
+	  * Replaces all materials of a project in a single transaction: the old rows are deleted and the
+	  * new ones inserted with one batched INSERT.
+	  * 
+	  * @param projectId The project ID
+	  * @param materials The project's materials. An empty collection removes them all.
+	  * @return The inserted materials, with their IDs set
+	  * @throws DbException Thrown if the project does not exist or the write fails
+	  */
+	 public List<Material> replaceMaterials(Integer projectId, Collection<Material> materials) {
+		    return instrument("replaceMaterials", () -> inTransaction(conn -> {
+		      List<Material> owned = ownMaterials(projectId, materials);
+
+		      touchProject(conn, projectId);
+		      deleteChildRows(conn, DELETE_MATERIALS_SQL, projectId);
+		      insertMaterials(conn, owned);
+		      return owned;
+		    }));
+		  }
+
+	 /**
+	  * Adds steps to the end of a project with one batched INSERT in a single transaction. Steps
+	  * without a step order are ranked after the project's last step, in collection order. If the
+	  * step orders after the last step would overflow, the project's steps are renumbered first.
+	  * The generated step IDs and the project ID are set on the steps.
+	  * 
+	  * @param projectId The project ID
+	  * @param steps The new steps
+	  * @return The inserted steps
+	  * @throws DbException Thrown if the project does not exist or the insert fails
+	  */
+	 public List<Step> addSteps(Integer projectId, Collection<Step> steps) {
+		    return instrument("addSteps", () -> inTransaction(conn -> {
+		      touchProject(conn, projectId);
+
+		      int lastOrder = maxStepOrder(conn, projectId);
+
+		      if(lastOrder + (long)steps.size() * STEP_ORDER_GAP > Integer.MAX_VALUE) {
+		        renumberSteps(conn, projectId);
+		        lastOrder = maxStepOrder(conn, projectId);
+		      }
+
+		      List<Step> owned = ownSteps(projectId, steps, lastOrder);
+
+		      insertSteps(conn, owned);
+		      return owned;
+		    }));
+		  }
+
+	 /**
+	  * Replaces all steps of a project in a single transaction: the old rows are deleted and the new
+	  * ones inserted with one batched INSERT. Steps without a step order are ranked by their
+	  * position in the collection.
+	  * 
+	  * @param projectId The project ID
+	  * @param steps The project's steps. An empty collection removes them all.
+	  * @return The inserted steps, with their IDs set
+	  * @throws DbException Thrown if the project does not exist or the write fails
+	  */
+	 public List<Step> replaceSteps(Integer projectId, Collection<Step> steps) {
+		    return instrument("replaceSteps", () -> inTransaction(conn -> {
+		      List<Step> owned = ownSteps(projectId, steps, 0);
+
+		      touchProject(conn, projectId);
+		      deleteChildRows(conn, DELETE_STEPS_SQL, projectId);
+		      insertSteps(conn, owned);
+		      return owned;
+		    }));
+		  }
+
+	 /**
+	  * Inserts a step at a position in a project's step list. The step is given a step order between
+	  * its neighbors, so no other step is changed unless the neighbors have no gap left, in which
+	  * case the project's steps are renumbered first. The generated step ID, the project ID and the
+	  * step order are set on the step.
+	  * 
+	  * @param projectId The project ID
+	  * @param position The zero-based position. A position past the last step appends the step.
+	  * @param step The new step
+	  * @return The inserted step
+	  * @throws DbException Thrown if the project does not exist or the insert fails
+	  */
+	 public Step insertStepAt(Integer projectId, int position, Step step) {
+		    checkStepPosition(position);
+
+		    return instrument("insertStepAt", () -> inTransaction(conn -> {
+		      touchProject(conn, projectId);
+
+		      step.setProjectId(projectId);
+		      step.setStepOrder(stepOrderAt(conn, projectId, position, NO_STEP));
+		      insertSteps(conn, List.of(step));
+		      return step;
+		    }));
+		  }
+
+	 /**
+	  * Moves a step to a position in its project's step list by changing its step order. Only the
+	  * moved step is updated unless its new neighbors have no gap left, in which case the project's
+	  * steps are renumbered first.
+	  * 
+	  * @param projectId The project ID
+	  * @param stepId The ID of the step to move
+	  * @param position The zero-based position among the project's other steps. A position past the
+	  *        last step moves the step to the end.
+	  * @return true if the step was moved, false (with nothing changed) if the project has no step
+	  *         with that ID
+	  * @throws DbException Thrown if the project does not exist or the update fails
+	  */
+	 public boolean moveStep(Integer projectId, Integer stepId, int position) {
+		    checkStepPosition(position);
+
+		    return instrument("moveStep", () -> inTransaction(conn -> {
+		      lockProject(conn, projectId);
+
+		      /* The step row stays locked, so a concurrent deleteStep cannot remove it meanwhile. */
+		      try(PreparedStatement stmt = prepareStatement(conn, LOCK_STEP_SQL)) {
+		        setParameter(stmt, 1, stepId, Integer.class);
+		        setParameter(stmt, 2, projectId, Integer.class);
+
+		        try(ResultSet rs = stmt.executeQuery()) {
+		          if(!rs.next()) {
+		            return false;
+		          }
+		        }
+		      }
+
+		      touchProject(conn, projectId);
+
+		      int stepOrder = stepOrderAt(conn, projectId, position, stepId);
+
+		      try(PreparedStatement stmt = prepareStatement(conn, UPDATE_STEP_ORDER_SQL)) {
+		        setParameter(stmt, 1, stepOrder, Integer.class);
+		        setParameter(stmt, 2, stepId, Integer.class);
+		        setParameter(stmt, 3, projectId, Integer.class);
+
+		        return stmt.executeUpdate() == 1;
+		      }
+		    }));
+		  }
+
+	 /**
+	  * Deletes one step. The remaining steps keep their step orders; gaps are expected.
+	  * 
+	  * @param projectId The project ID
+	  * @param stepId The step ID
+	  * @return true if the step was deleted, false if the project has no step with that ID
+	  */
+	 public boolean deleteStep(Integer projectId, Integer stepId) {
+		    return instrument("deleteStep", () -> inTransaction(conn -> {
+		      try(PreparedStatement stmt = prepareStatement(conn, DELETE_STEP_SQL)) {
+		        setParameter(stmt, 1, stepId, Integer.class);
+		        setParameter(stmt, 2, projectId, Integer.class);
+
+		        if(stmt.executeUpdate() == 0) {
+		          return false;
+		        }
+		      }
+
+		      touchProject(conn, projectId);
+		      return true;
+		    }));
+		  }
+
+	 /**
+	  * Links a project to existing categories with one batched INSERT in a single transaction.
+	  * 
+	  * @param projectId The project ID
+	  * @param categories The categories. Only the category IDs are used.
+	  * @throws DbException Thrown if the project or a category does not exist, or if the project is
+	  *         already linked to one of the categories
+	  */
+	 public void addCategories(Integer projectId, Collection<Category> categories) {
+		    instrument("addCategories", () -> inTransaction(conn -> {
+		      touchProject(conn, projectId);
+		      insertCategoryLinks(conn, projectId, categories);
+		      return null;
+		    }));
+		  }
+
+	 /**
+	  * Replaces the category links of a project in a single transaction.
+	  * 
+	  * @param projectId The project ID
+	  * @param categories The project's categories. Only the category IDs are used. An empty
+	  *        collection unlinks them all.
+	  * @throws DbException Thrown if the project or a category does not exist
+	  */
+	 public void replaceCategories(Integer projectId, Collection<Category> categories) {
+		    instrument("replaceCategories", () -> inTransaction(conn -> {
+		      touchProject(conn, projectId);
+		      deleteChildRows(conn, DELETE_PROJECT_CATEGORIES_SQL, projectId);
+		      insertCategoryLinks(conn, projectId, categories);
+		      return null;
+		    }));
+		  }
+
+	 /**
+	  * Saves a project with all of its materials, steps and category links in a single transaction.
+	  * A project without an ID is inserted. Otherwise its details are updated and its child rows are
+	  * replaced: one DELETE and one batched INSERT per child table. Generated keys and the new
+	  * version are set on the project, and keys on the materials and steps. The categories are
+	  * replaced with the shared instances, so categories given by ID only get their names.
+	  * 
+	  * If the project has a version, the save succeeds only if that is still the current version.
+	  * 
+	  * @param project The project graph
+	  * @return The same project
+	  * @throws OptimisticLockException Thrown if the project has been changed since its version was
+	  *         read
+	  * @throws DbException Thrown if the project ID does not exist or the write fails
+	  */
+	 public Project saveProjectGraph(Project project) {
+		    return instrument("saveProjectGraph", () -> inTransaction(conn -> {
+		      Integer projectId = project.getProjectId();
+
+		      if(Objects.isNull(projectId)) {
+		        insertProjectChunk(conn, List.of(project));
+		        return project;
+		      }
+
+		      int version = lockProject(conn, projectId);
+
+		      if(Objects.nonNull(project.getVersion()) && project.getVersion() != version) {
+		        throw new OptimisticLockException(projectId, project.getVersion(), version);
+		      }
+
+		      try(PreparedStatement stmt = prepareStatement(conn, MODIFY_PROJECT_SQL)) {
+		        setParameter(stmt, 1, project.getProjectName(), String.class);
+		        setParameter(stmt, 2, project.getEstimatedHours(), BigDecimal.class);
+		        setParameter(stmt, 3, project.getActualHours(), BigDecimal.class);
+		        setParameter(stmt, 4, project.getDifficulty(), Integer.class);
+		        setParameter(stmt, 5, project.getNotes(), String.class);
+		        setParameter(stmt, 6, projectId, Integer.class);
+		        stmt.executeUpdate();
+		      }
+
+		      deleteChildRows(conn, DELETE_MATERIALS_SQL, projectId);
+		      deleteChildRows(conn, DELETE_STEPS_SQL, projectId);
+		      deleteChildRows(conn, DELETE_PROJECT_CATEGORIES_SQL, projectId);
+
+		      insertMaterials(conn, ownMaterials(projectId, project.getMaterials()));
+		      insertSteps(conn, ownSteps(projectId, project.getSteps(), 0));
+		      insertCategoryLinks(conn, projectId, project.getCategories());
+		      resolveCategories(conn, project);
+		      project.setVersion(version + 1);
+		      project.clearChanges();
+		      return project;
+		    }));
+		  }
+
+	 /**
+	  * Sets the project ID on materials
+	  * 
+	  * @param projectId
+	  * @param materials
+	  * @return The materials as a list
+	  */
+	 private List<Material> ownMaterials(Integer projectId, Collection<Material> materials) {
+		    List<Material> owned = new ArrayList<>(materials);
+
+		    for(Material material : owned) {
+		      material.setProjectId(projectId);
+		    }
+
+		    return owned;
+		  }
+
+	 /**
+	  * Sets the project ID on steps, and ranks steps without a step order by their position, one
+	  * gap apart
+	  * 
+	  * @param projectId
+	  * @param steps
+	  * @param lastOrder The step order the first step follows
+	  * @return The steps as a list
+	  */
+	 private List<Step> ownSteps(Integer projectId, Collection<Step> steps, int lastOrder) {
+		    List<Step> owned = new ArrayList<>(steps);
+		    long stepOrder = lastOrder;
+
+		    for(Step step : owned) {
+		      stepOrder += STEP_ORDER_GAP;
+		      step.setProjectId(projectId);
+
+		      if(Objects.isNull(step.getStepOrder())) {
+		        step.setStepOrder(Math.toIntExact(stepOrder));
+		      }
+		    }
+
+		    return owned;
+		  }
+
+	 /**
+	  * Finds a free step order for a step at a position, renumbering the project's steps if the
+	  * neighbors at that position have no gap left. The project row must be locked.
+	  * 
+	  * @param conn
+	  * @param projectId
+	  * @param position The zero-based position
+	  * @param skippedStepId A step to leave out of the positions (the step being moved), or NO_STEP
+	  * @return The step order
+	  * @throws SQLException
+	  */
+	 private int stepOrderAt(Connection conn, Integer projectId, int position, Integer skippedStepId)
+		      throws SQLException {
+		    for(int attempt = 0; attempt < 2; attempt++) {
+		      /* The neighbors are the steps at position - 1 and position, if they exist. */
+		      List<Integer> neighbors = position == 0
+		          ? stepOrders(conn, projectId, skippedStepId, 1, 0)
+		          : stepOrders(conn, projectId, skippedStepId, 2, position - 1);
+		      long before;
+		      Integer after;
+
+		      if(position == 0) {
+		        before = 0;
+		        after = neighbors.isEmpty() ? null : neighbors.get(0);
+		      }
+		      else if(neighbors.isEmpty()) {
+		        before = maxStepOrder(conn, projectId);
+		        after = null;
+		      }
+		      else {
+		        before = neighbors.get(0);
+		        after = neighbors.size() > 1 ? neighbors.get(1) : null;
+		      }
+
+		      if(Objects.isNull(after) && before + STEP_ORDER_GAP <= Integer.MAX_VALUE) {
+		        return (int)(before + STEP_ORDER_GAP);
+		      }
+
+		      if(Objects.nonNull(after) && after - before > 1) {
+		        return (int)(before + (after - before) / 2);
+		      }
+
+		      renumberSteps(conn, projectId);
+		    }
+
+		    throw new DbException("Unable to find a step order in project with ID=" + projectId);
+		  }
+
+	 /**
+	  * Reads step orders in order, leaving one step out
+	  * 
+	  * @param conn
+	  * @param projectId
+	  * @param skippedStepId
+	  * @param limit
+	  * @param offset
+	  * @return The step orders
+	  * @throws SQLException
+	  */
+	 private List<Integer> stepOrders(Connection conn, Integer projectId, Integer skippedStepId,
+		      int limit, int offset) throws SQLException {
+		    try(PreparedStatement stmt = prepareStatement(conn, STEP_NEIGHBORS_SQL)) {
+		      setParameter(stmt, 1, projectId, Integer.class);
+		      setParameter(stmt, 2, skippedStepId, Integer.class);
+		      setParameter(stmt, 3, limit, Integer.class);
+		      setParameter(stmt, 4, offset, Integer.class);
+
+		      try(ResultSet rs = stmt.executeQuery()) {
+		        List<Integer> stepOrders = new ArrayList<>(limit);
+
+		        while(rs.next()) {
+		          stepOrders.add(rs.getInt("step_order"));
+		        }
+
+		        return stepOrders;
+		      }
+		    }
+		  }
+
+	 /**
+	  * Returns the highest step order of a project, read from the (project_id, step_order) index
+	  * 
+	  * @param conn
+	  * @param projectId
+	  * @return The highest step order, or 0 if the project has no steps
+	  * @throws SQLException
+	  */
+	 private int maxStepOrder(Connection conn, Integer projectId) throws SQLException {
+		    try(PreparedStatement stmt = prepareStatement(conn, MAX_STEP_ORDER_SQL)) {
+		      setParameter(stmt, 1, projectId, Integer.class);
+
+		      try(ResultSet rs = stmt.executeQuery()) {
+		        return rs.next() ? rs.getInt(1) : 0;
+		      }
+		    }
+		  }
+
+	 /**
+	  * Renumbers a project's steps one gap apart, keeping their order, with one batched UPDATE
+	  * 
+	  * @param conn
+	  * @param projectId
+	  * @throws SQLException
+	  */
+	 private void renumberSteps(Connection conn, Integer projectId) throws SQLException {
+		    List<Integer> stepIds = new ArrayList<>();
+
+		    try(PreparedStatement stmt = prepareStatement(conn, STEP_IDS_IN_ORDER_SQL)) {
+		      setParameter(stmt, 1, projectId, Integer.class);
+
+		      try(ResultSet rs = stmt.executeQuery()) {
+		        while(rs.next()) {
+		          stepIds.add(rs.getInt("step_id"));
+		        }
+		      }
+		    }
+
+		    try(PreparedStatement stmt = prepareStatement(conn, UPDATE_STEP_ORDER_SQL)) {
+		      long stepOrder = 0;
+
+		      for(Integer stepId : stepIds) {
+		        stepOrder += STEP_ORDER_GAP;
+		        setParameter(stmt, 1, Math.toIntExact(stepOrder), Integer.class);
+		        setParameter(stmt, 2, stepId, Integer.class);
+		        setParameter(stmt, 3, projectId, Integer.class);
+		        stmt.addBatch();
+		      }
+
+		      stmt.executeBatch();
+		    }
+		  }
+
+	 /**
+	  * Rejects negative step positions before a transaction is started
+	  * 
+	  * @param position
+	  */
+	 private void checkStepPosition(int position) {
+		    if(position < 0) {
+		      throw new IllegalArgumentException("Step position must not be negative: " + position);
+		    }
+		  }
+
+	 /**
+	  * Inserts materials with one batch and sets their generated IDs
+	  * 
+	  * @param conn
+	  * @param materials Materials with their project ID set
+	  * @throws SQLException
+	  */
+	 private void insertMaterials(Connection conn, List<Material> materials) throws SQLException {
+		    if(materials.isEmpty()) {
+		      return;
+		    }
+
+		    try(PreparedStatement stmt = prepareInsert(conn, INSERT_MATERIAL_SQL)) {
+		      for(Material material : materials) {
+		        setParameter(stmt, 1, material.getProjectId(), Integer.class);
+		        setParameter(stmt, 2, material.getMaterialName(), String.class);
+		        setParameter(stmt, 3, material.getNumRequired(), Integer.class);
+		        setParameter(stmt, 4, material.getCost(), BigDecimal.class);
+		        stmt.addBatch();
+		      }
+
+		      stmt.executeBatch();
+		      setGeneratedIds(stmt, materials, Material::setMaterialId);
+		    }
+		  }
+
+	 /**
+	  * Inserts steps with one batch and sets their generated IDs
+	  * 
+	  * @param conn
+	  * @param steps Steps with their project ID and step order set
+	  * @throws SQLException
+	  */
+	 private void insertSteps(Connection conn, List<Step> steps) throws SQLException {
+		    if(steps.isEmpty()) {
+		      return;
+		    }
+
+		    try(PreparedStatement stmt = prepareInsert(conn, INSERT_STEP_SQL)) {
+		      for(Step step : steps) {
+		        setParameter(stmt, 1, step.getProjectId(), Integer.class);
+		        setParameter(stmt, 2, step.getStepText(), String.class);
+		        setParameter(stmt, 3, step.getStepOrder(), Integer.class);
+		        stmt.addBatch();
+		      }
+
+		      stmt.executeBatch();
+		      setGeneratedIds(stmt, steps, Step::setStepId);
+		    }
+		  }
+
+	 /**
+	  * Links one project to categories with one batch
+	  * 
+	  * @param conn
+	  * @param projectId
+	  * @param categories
+	  * @throws SQLException
+	  */
+	 private void insertCategoryLinks(Connection conn, Integer projectId,
+		      Collection<Category> categories) throws SQLException {
+		    if(categories.isEmpty()) {
+		      return;
+		    }
+
+		    try(PreparedStatement stmt = prepareStatement(conn, INSERT_PROJECT_CATEGORY_SQL)) {
+		      addCategoryLinks(stmt, projectId, categories);
+		      stmt.executeBatch();
+		    }
+		  }
+
+	 /**
+	  * Adds the category links of one project to a batch
+	  * 
+	  * @param stmt The INSERT_PROJECT_CATEGORY_SQL statement
+	  * @param projectId
+	  * @param categories
+	  * @return The number of links added
+	  * @throws SQLException
+	  */
+	 private int addCategoryLinks(PreparedStatement stmt, Integer projectId,
+		      Collection<Category> categories) throws SQLException {
+		    for(Category category : categories) {
+		      setParameter(stmt, 1, projectId, Integer.class);
+		      setParameter(stmt, 2, category.getCategoryId(), Integer.class);
+		      stmt.addBatch();
+		    }
+
+		    return categories.size();
+		  }
+
+	 /**
+	  * Replaces the categories on a saved project with the shared dictionary instances, so that
+	  * categories given by ID only come back with their names
+	  * 
+	  * @param conn
+	  * @param project
+	  * @throws SQLException
+	  */
+	 private void resolveCategories(Connection conn, Project project) throws SQLException {
+		    for(ListIterator<Category> it = project.getCategories().listIterator(); it.hasNext();) {
+		      it.set(CATEGORIES.resolve(conn, it.next().getCategoryId()));
+		    }
+		  }
+
+	 /**
+	  * Locks a project row until the end of the transaction
+	  * 
+	  * @param conn
+	  * @param projectId
+	  * @return The project's current version
+	  * @throws DbException Thrown if the project does not exist
+	  * @throws SQLException
+	  */
+	 private int lockProject(Connection conn, Integer projectId) throws SQLException {
+		    try(PreparedStatement stmt = prepareStatement(conn, LOCK_PROJECT_SQL)) {
+		      setParameter(stmt, 1, projectId, Integer.class);
+
+		      try(ResultSet rs = stmt.executeQuery()) {
+		        if(!rs.next()) {
+		          throw new DbException("Project with ID=" + projectId + " does not exist.");
+		        }
+
+		        return rs.getInt("version");
+		      }
+		    }
+		  }
+
+	 /**
+	  * Locks a project row until the end of the transaction and increments its version, because
+	  * its child rows are about to change
+	  * 
+	  * @param conn
+	  * @param projectId
+	  * @throws DbException Thrown if the project does not exist
+	  * @throws SQLException
+	  */
+	 private void touchProject(Connection conn, Integer projectId) throws SQLException {
+		    try(PreparedStatement stmt = prepareStatement(conn, TOUCH_PROJECT_SQL)) {
+		      setParameter(stmt, 1, projectId, Integer.class);
+
+		      if(stmt.executeUpdate() == 0) {
+		        throw new DbException("Project with ID=" + projectId + " does not exist.");
+		      }
+		    }
+		  }
+
+	 /**
+	  * Deletes the child rows of a project from one table
+	  * 
+	  * @param conn
+	  * @param sql One of the DELETE_..._SQL statements
+	  * @param projectId
+	  * @throws SQLException
+	  */
+	 private void deleteChildRows(Connection conn, String sql, Integer projectId)
+		      throws SQLException {
+		    try(PreparedStatement stmt = prepareStatement(conn, sql)) {
+		      setParameter(stmt, 1, projectId, Integer.class);
+		      stmt.executeUpdate();
+		    }
+		  }
+
+	 /**
+	  * Fetches one page of project summaries ordered by name and ID. Rows are located by seeking
+	  * past the last row of the previous page rather than with OFFSET, so every page costs the same
+	  * regardless of how deep it is. The notes column is not read. Materials, steps and categories
+	  * are not loaded.
+	  * 
+	  * @param afterProjectName The name of the last project on the previous page, or null for the
+	  *        first page
+	  * @param afterProjectId The ID of the last project on the previous page, or null for the first
+	  *        page
+	  * @param pageSize The maximum number of projects to return, at least 1
+	  * @return The page of projects. A page shorter than pageSize is the last page.
+	  */
+	 public List<Project> fetchProjectPage(String afterProjectName, Integer afterProjectId,
+		      int pageSize) {
+		    if(pageSize < 1) {
+		      throw new IllegalArgumentException("Invalid page: pageSize=" + pageSize);
+		    }
+
+		    return instrument("fetchProjectPage", () -> {
+			    boolean firstPage = Objects.isNull(afterProjectName) || Objects.isNull(afterProjectId);
+			    String sql = firstPage ? FIRST_PROJECT_PAGE_SQL : NEXT_PROJECT_PAGE_SQL;
+
+			    try(Connection conn = DbConnection.getConnection()) {
+			      try(PreparedStatement stmt = prepareStatement(conn, sql)) {
+			        int param = 1;
+
+			        if(!firstPage) {
+			          setParameter(stmt, param++, afterProjectName, String.class);
+			          setParameter(stmt, param++, afterProjectName, String.class);
+			          setParameter(stmt, param++, afterProjectId, Integer.class);
+			        }
+
+			        setParameter(stmt, param, pageSize, Integer.class);
+
+			        try(ResultSet rs = stmt.executeQuery()) {
+			          return extractAll(rs, Project.class);
+			        }
+			      }
+			    }
+			    catch(SQLException e) {
+			      throw new DbException(e);
+			    }
+		    });
+		  }
+
+	 /**
+	  * Searches project names, notes and step text with the MySQL full-text indexes, in natural
+	  * language mode. Results are ranked by relevance, best first: the score of the project name
+	  * and notes plus the scores of its matching steps. Words shorter than the server's minimum
+	  * token size (3 for InnoDB) and stopwords are ignored. Pages are read with OFFSET, which is
+	  * fine for the first few pages that searches are usually paged through.
+	  * 
+	  * @param query The words to search for
+	  * @param pageNumber The zero-based page number
+	  * @param pageSize The maximum number of results per page
+	  * @return One page of results. A blank query returns no results.
+	  */
+	 public List<ProjectSearchResult> searchProjects(String query, int pageNumber, int pageSize) {
+		    if(pageNumber < 0 || pageSize < 1) {
+		      throw new IllegalArgumentException(
+		          "Invalid page: pageNumber=" + pageNumber + ", pageSize=" + pageSize);
+		    }
+
+		    if(Objects.isNull(query) || query.isBlank()) {
+		      return new ArrayList<>();
+		    }
+
+		    return instrument("searchProjects", () -> withConnection(conn -> {
+		      try(PreparedStatement stmt = prepareStatement(conn, SEARCH_PROJECTS_SQL)) {
+		        for(int param = 1; param <= 4; param++) {
+		          setParameter(stmt, param, query.trim(), String.class);
+		        }
+
+		        setParameter(stmt, 5, pageSize, Integer.class);
+		        setParameter(stmt, 6, pageNumber * pageSize, Integer.class);
+
+		        try(ResultSet rs = stmt.executeQuery()) {
+		          RowMapper<Project> mapper = RowMapper.forClass(Project.class);
+		          RowMapper.Plan plan = mapper.planFor(rs);
+		          List<ProjectSearchResult> results = new ArrayList<>(pageSize);
+
+		          while(rs.next()) {
+		            results.add(
+		                new ProjectSearchResult(mapper.map(rs, plan), rs.getDouble("relevance")));
+		          }
+
+		          return results;
+		        }
+		      }
+		    }));
+		  }
+
+	 /**
+	  * Streams every project row (without materials, steps and categories) in project name order.
+	  * The driver is asked to stream rows from the server one at a time instead of buffering the
+	  * whole result, so memory use does not grow with the size of the table. The connection is held
+	  * until the stream is exhausted or closed, so use the stream in a try-with-resources block.
+	  * 
+	  * @return A lazily populated stream of projects
+	  */
+	 public Stream<Project> streamAllProjects() {
+		    /* Only the time to execute the query is recorded, not the time to consume the stream. */
+		    return instrument("streamAllProjects", () -> {
+			    Connection conn = DbConnection.getConnection();
+			    PreparedStatement stmt = null;
+
+			    try {
+			      /* Not cached: a streaming statement ties up the connection until its rows are read. */
+			      stmt = SlowQueryLog.profile(conn.prepareStatement(FETCH_ALL_PROJECTS_SQL,
+			          ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY), FETCH_ALL_PROJECTS_SQL);
+
+			      /* Connector/J streams rows one at a time when the fetch size is Integer.MIN_VALUE. */
+			      stmt.setFetchSize(Integer.MIN_VALUE);
+
+			      return stream(stmt.executeQuery(), Project.class, stmt, conn);
+			    }
+			    catch(Exception e) {
+			      closeQuietly(stmt);
+			      closeQuietly(conn);
+			      throw new DbException(e);
+			    }
+		    });
+		  }
+
+	 /**
+	  * Fetches a project by its ID using the DAO's current load mode
+	  * 
+	  * @param projectId The ID of the project to fetch
+	  * @return An Optional containing the project if found, otherwise empty
+	  */
+	 public Optional<Project> fetchProjectById(Integer projectId) {
+		    return fetchProjectById(projectId, loadMode);
+		  }
+
+	 /**
+	  * Fetches a project by its ID, including its materials, steps and categories
+	  * 
+	  * @param projectId The ID of the project to fetch
+	  * @param mode How the project and its child rows are loaded
+	  * @return An Optional containing the project if found, otherwise empty
+	  */
+	 public Optional<Project> fetchProjectById(Integer projectId, ProjectLoadMode mode) {
+		    return instrument(FETCH_BY_ID_OPERATIONS.get(mode), () -> {
+			    if(mode == ProjectLoadMode.PARALLEL || mode == ProjectLoadMode.PARALLEL_SNAPSHOT) {
+			      List<Connection> connections = DbConnection.tryGetConnections(PARALLEL_CONNECTIONS);
+
+			      if(!connections.isEmpty()) {
+			        return Optional.ofNullable(fetchProjectParallel(connections, projectId,
+			            mode == ProjectLoadMode.PARALLEL_SNAPSHOT));
+			      }
+
+			      /* The pool is busy. Waiting for four connections could deadlock, so load on one. */
+			    }
+
+			    try(Connection conn = DbConnection.getConnection()) {
+			      startTransaction(conn);
+
+			      try {
+			        Project project = switch(mode) {
+			          case SEQUENTIAL, PARALLEL, PARALLEL_SNAPSHOT -> fetchProjectSequential(conn, projectId);
+			          case SINGLE_ROUND_TRIP -> fetchProjectGraph(conn, projectId);
+			        };
+
+			        commitTransaction(conn);
+
+			        return Optional.ofNullable(project); //return found project 
+			      }
+			      catch(Exception e) {
+			        rollbackTransaction(conn);  //rollback on error 
+			        throw new DbException(e);
+			      }
+			    }
+			    catch(SQLException e) {
+			      throw new DbException(e);
+			    }
+		    });
+		  }
+
+	 /**
+	  * Reads the project row, then each child table with its own query
+	  * 
+	  * @param conn
+	  * @param projectId
+	  * @return The project, or null if it does not exist
+	  * @throws SQLException
+	  */
+	 private Project fetchProjectSequential(Connection conn, Integer projectId) throws SQLException {
+		    Project project = fetchProjectRow(conn, projectId);
+
+		    //If the project is found, fetch related materials, steps, and categories
+		    if(Objects.nonNull(project)) {
+		      project.getMaterials().addAll(fetchMaterialsForProject(conn, projectId));
+		      project.getSteps().addAll(fetchStepsForProject(conn, projectId));
+		      project.getCategories().addAll(fetchCategoriesForProject(conn, projectId));
+		    }
+
+		    return project;
+		  }
+
+	 /**
+	  * Reads the project row only
+	  * 
+	  * @param conn
+	  * @param projectId
+	  * @return The project without child rows, or null if it does not exist
+	  * @throws SQLException
+	  */
+	 private Project fetchProjectRow(Connection conn, Integer projectId) throws SQLException {
+		    try(PreparedStatement stmt = prepareStatement(conn, FETCH_PROJECT_SQL)) {
+		      setParameter(stmt, 1, projectId, Integer.class);
+
+		      try(ResultSet rs = stmt.executeQuery()) {
+		        return rs.next() ? extract(rs, Project.class) : null; //Extract project data
+		      }
+		    }
+		  }
+
+	 /**
+	  * Reads the project row and the three child tables concurrently, each on its own pooled
+	  * connection, so the latency is that of the slowest query instead of the sum of all four. The
+	  * caller borrows the connections together, never one at a time, so concurrent loads cannot each
+	  * hold part of the pool while waiting for the rest.
+	  * 
+	  * With snapshot reads, each connection first starts a REPEATABLE READ transaction WITH
+	  * CONSISTENT SNAPSHOT, and no query runs until all four snapshots exist. The snapshots are
+	  * opened concurrently, so only a write that commits in that brief window can be seen by some
+	  * of the reads and not others. Use SEQUENTIAL when the graph must come from a single
+	  * transaction.
+	  * 
+	  * @param connections Four borrowed connections, which are returned to the pool
+	  * @param projectId
+	  * @param snapshot true to use snapshot reads
+	  * @return The project, or null if it does not exist
+	  */
+	 private Project fetchProjectParallel(List<Connection> connections, Integer projectId,
+			 boolean snapshot) {
+		    try {
+		      if(snapshot) {
+		        /* allOf() completes only after every snapshot attempt has finished. */
+		        join(CompletableFuture.allOf(connections.stream()
+		            .map(conn -> CompletableFuture.runAsync(() -> startSnapshot(conn), PARALLEL_EXECUTOR))
+		            .toArray(CompletableFuture[]::new)));
+		      }
+
+		      CompletableFuture<Project> project =
+		          readAsync(connections.get(0), conn -> fetchProjectRow(conn, projectId));
+		      CompletableFuture<List<Material>> materials =
+		          readAsync(connections.get(1), conn -> fetchMaterialsForProject(conn, projectId));
+		      CompletableFuture<List<Step>> steps =
+		          readAsync(connections.get(2), conn -> fetchStepsForProject(conn, projectId));
+		      CompletableFuture<List<Category>> categories =
+		          readAsync(connections.get(3), conn -> fetchCategoriesForProject(conn, projectId));
+
+		      join(CompletableFuture.allOf(project, materials, steps, categories));
+
+		      Project result = project.join();
+
+		      if(Objects.nonNull(result)) {
+		        result.getMaterials().addAll(materials.join());
+		        result.getSteps().addAll(steps.join());
+		        result.getCategories().addAll(categories.join());
+		      }
+
+		      return result;
+		    }
+		    finally {
+		      for(Connection conn : connections) {
+		        closeParallelConnection(conn, snapshot);
+		      }
+		    }
+		  }
+
+	 /**
+	  * Starts a read-only consistent snapshot transaction on a borrowed connection
+	  * 
+	  * @param conn
+	  */
+	 private void startSnapshot(Connection conn) {
+		    try {
+		      startTransaction(conn);
+
+		      /* SET TRANSACTION applies to the next transaction only, so the pooled session keeps its level. */
+		      try(Statement stmt = conn.createStatement()) {
+		        stmt.execute("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ");
+		        stmt.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT, READ ONLY");
+		      }
+		    }
+		    catch(SQLException e) {
+		      throw new DbException(e);
+		    }
+		  }
+
+	 /**
+	  * Ends the snapshot transaction, if any, and returns the connection to the pool
+	  * 
+	  * @param conn
+	  * @param snapshot
+	  */
+	 private void closeParallelConnection(Connection conn, boolean snapshot) {
+		    if(snapshot) {
+		      try {
+		        commitTransaction(conn);
+		      }
+		      catch(SQLException e) {
+		        /* A read-only transaction has nothing to commit; the pool rolls back anyway. */
+		      }
+		    }
+
+		    closeQuietly(conn);
+		  }
+
+	 /**
+	  * Runs a read on an already borrowed connection on the parallel executor
+	  * 
+	  * @param <T> The result type
+	  * @param conn The connection, which is not closed
+	  * @param work The read
+	  * @return A future for the result
+	  */
+	 private <T> CompletableFuture<T> readAsync(Connection conn, ConnectionWork<T> work) {
+		    return CompletableFuture.supplyAsync(() -> {
+		      try {
+		        return work.apply(conn);
+		      }
+		      catch(SQLException e) {
+		        throw new DbException(e);
+		      }
+		    }, PARALLEL_EXECUTOR);
+		  }
+
+	 /**
+	  * Waits for a future and rethrows its failure without the CompletionException wrapper
+	  * 
+	  * @param future
+	  */
+	 private void join(CompletableFuture<?> future) {
+		    try {
+		      future.join();
+		    }
+		    catch(CompletionException e) {
+		      if(e.getCause() instanceof RuntimeException cause) {
+		        throw cause;
+		      }
+
+		      throw new DbException(e.getCause());
+		    }
+		  }
+
+	 /**
+	  * Reads the project row and all of its child rows with one UNION ALL query. Each branch maps
+	  * its columns onto a shared set of aliases and is tagged with a row_type so the rows can be
+	  * sorted back onto the right lists.
+	  * 
+	  * @param conn
+	  * @param projectId
+	  * @return The project, or null if it does not exist
+	  * @throws SQLException
+	  */
+	 private Project fetchProjectGraph(Connection conn, Integer projectId) throws SQLException {
+		    Project project = null;
+		    List<Material> materials = new ArrayList<>();
+		    List<Step> steps = new ArrayList<>();
+		    List<Category> categories = new ArrayList<>();
+
+		    try(PreparedStatement stmt = prepareStatement(conn, PROJECT_GRAPH_SQL)) {
+		      for(int param = 1; param <= 4; param++) {
+		        setParameter(stmt, param, projectId, Integer.class);
+		      }
+
+		      try(ResultSet rs = stmt.executeQuery()) {
+		        while(rs.next()) {
+		          Integer rowId = rs.getObject("row_id", Integer.class);
+		          String rowText = rs.getString("row_text");
+
+		          switch(rs.getString("row_type")) {
+		            case "P" -> {
+		              project = new Project();
+		              project.setProjectId(rowId);
+		              project.setProjectName(rowText);
+		              project.setEstimatedHours(rs.getBigDecimal("dec_1"));
+		              project.setActualHours(rs.getBigDecimal("dec_2"));
+		              project.setDifficulty(rs.getObject("int_1", Integer.class));
+		              project.setNotes(rs.getString("notes"));
+		              project.setVersion(rs.getObject("version", Integer.class));
+		            }
+		            case "M" -> {
+		              Material material = new Material();
+		              material.setMaterialId(rowId);
+		              material.setProjectId(projectId);
+		              material.setMaterialName(rowText);
+		              material.setCost(rs.getBigDecimal("dec_1"));
+		              material.setNumRequired(rs.getObject("int_1", Integer.class));
+		              materials.add(material);
+		            }
+		            case "S" -> {
+		              Step step = new Step();
+		              step.setStepId(rowId);
+		              step.setProjectId(projectId);
+		              step.setStepText(rowText);
+		              step.setStepOrder(rs.getObject("int_1", Integer.class));
+		              steps.add(step);
+		            }
+		            case "C" -> categories.add(CATEGORIES.resolve(conn, rowId));
+		            default -> throw new SQLException("Unexpected row type in project graph");
+		          }
+		        }
+		      }
+		    }
+
+		    if(Objects.nonNull(project)) {
+		      project.clearChanges();
+		      project.getMaterials().addAll(materials);
+		      project.getSteps().addAll(steps);
+		      project.getCategories().addAll(categories);
+		    }
+
+		    return project;
+		  }
+	 
+	 /**
+	  * Fetches many projects with their materials, steps and categories. The IDs are processed in
+	  * chunks of the batch size; each chunk costs four queries no matter how many projects it
+	  * holds. Child rows are stitched onto their projects in memory.
+	  * 
+	  * @param projectIds The IDs of the projects to fetch. Duplicates are ignored.
+	  * @return The projects that exist, in the order their IDs were given
+	  */
+	 public List<Project> fetchProjectsById(Collection<Integer> projectIds) {
+		    return instrument("fetchProjectsById", () -> {
+			    List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(projectIds));
+			    Map<Integer, Project> projectsById = new HashMap<>();
+
+			    if(ids.isEmpty()) {
+			      return new ArrayList<>();
+			    }
+
+			    try(Connection conn = DbConnection.getConnection()) {
+			      startTransaction(conn);
+
+			      try {
+			        for(int from = 0; from < ids.size(); from += batchSize) {
+			          List<Integer> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+			          fetchProjectChunk(conn, chunk, projectsById);
+			        }
+
+			        commitTransaction(conn);
+			      }
+			      catch(Exception e) {
+			        rollbackTransaction(conn);
+			        throw new DbException(e);
+			      }
+			    }
+			    catch(SQLException e) {
+			      throw new DbException(e);
+			    }
+
+			    List<Project> projects = new ArrayList<>(projectsById.size());
+
+			    for(Integer projectId : ids) {
+			      Project project = projectsById.get(projectId);
+
+			      if(Objects.nonNull(project)) {
+			        projects.add(project);
+			      }
+			    }
+
+			    return projects;
+		    });
+		  }
+
+	 /**
+	  * Loads one chunk of projects and their child rows with one IN (...) query per table
+	  * 
+	  * @param conn
+	  * @param projectIds The chunk of IDs
+	  * @param projectsById Receives the loaded projects
+	  * @throws SQLException
+	  */
+	 private void fetchProjectChunk(Connection conn, List<Integer> projectIds,
+		      Map<Integer, Project> projectsById) throws SQLException {
+		    int projectInSize = inListSize(projectIds.size());
+		    String projectSql = "SELECT * FROM " + PROJECT_TABLE + " WHERE " + NOT_PURGED
+		        + " AND project_id IN " + inClause(projectInSize);
+
+		    try(PreparedStatement stmt = prepareStatement(conn, projectSql)) {
+		      setIdParameters(stmt, projectIds, projectInSize);
+
+		      try(ResultSet rs = stmt.executeQuery()) {
+		        for(Project project : extractAll(rs, Project.class)) {
+		          projectsById.put(project.getProjectId(), project);
+		        }
+		      }
+		    }
+
+		    /* Child rows are read only for the projects found, not for missing or purged ones. */
+		    List<Integer> foundIds = projectIds.stream().filter(projectsById::containsKey).toList();
+
+		    if(foundIds.isEmpty()) {
+		      return;
+		    }
+
+		    int inSize = inListSize(foundIds.size());
+		    String in = inClause(inSize);
+		    String materialSql = "SELECT * FROM " + MATERIAL_TABLE + " WHERE project_id IN " + in;
+		    String stepSql = "SELECT * FROM " + STEP_TABLE + " WHERE project_id IN " + in
+		        + " ORDER BY project_id, step_order, step_id";
+		    String categorySql = "SELECT project_id, category_id FROM " + PROJECT_CATEGORY_TABLE
+		        + " WHERE project_id IN " + in;
+
+		    try(PreparedStatement stmt = prepareStatement(conn, materialSql)) {
+		      setIdParameters(stmt, foundIds, inSize);
+
+		      try(ResultSet rs = stmt.executeQuery()) {
+		        for(Material material : extractAll(rs, Material.class)) {
+		          projectsById.get(material.getProjectId()).getMaterials().add(material);
+		        }
+		      }
+		    }
+
+		    try(PreparedStatement stmt = prepareStatement(conn, stepSql)) {
+		      setIdParameters(stmt, foundIds, inSize);
+
+		      try(ResultSet rs = stmt.executeQuery()) {
+		        for(Step step : extractAll(rs, Step.class)) {
+		          projectsById.get(step.getProjectId()).getSteps().add(step);
+		        }
+		      }
+		    }
+
+		    try(PreparedStatement stmt = prepareStatement(conn, categorySql)) {
+		      setIdParameters(stmt, foundIds, inSize);
+
+		      try(ResultSet rs = stmt.executeQuery()) {
+		        while(rs.next()) {
+		          Project project = projectsById.get(rs.getInt("project_id"));
+		          project.getCategories().add(CATEGORIES.resolve(conn, rs.getInt("category_id")));
+		        }
+		      }
+		    }
+		  }
+
+	 /**
+	  * Rounds the length of an IN (...) list up to a power of {@value #IN_LIST_GROWTH}, so that a
+	  * few SQL texts cover every chunk size and stay in the statement cache instead of each size
+	  * evicting the constant statements. Lists longer than {@value #MAX_IN_LIST_BUCKET} (only with
+	  * a very large batch size) keep their exact length.
+	  * 
+	  * @param count The number of IDs
+	  * @return The number of parameters in the IN (...) list
+	  */
+	 private static int inListSize(int count) {
+		    int size = 1;
+
+		    while(size < count && size < MAX_IN_LIST_BUCKET) {
+		      size *= IN_LIST_GROWTH;
+		    }
+
+		    return Math.max(size, count);
+		  }
+
+	 /**
+	  * Binds a list of IDs to the parameters of an IN (...) clause, starting at parameter 1. The
+	  * unused parameters of a rounded-up list repeat the last ID, which does not change the result.
+	  * 
+	  * @param stmt
+	  * @param ids
+	  * @param size The number of parameters, see {@link #inListSize(int)}
+	  * @throws SQLException
+	  */
+	 private void setIdParameters(PreparedStatement stmt, List<Integer> ids, int size)
+			 throws SQLException {
+		    for(int param = 1; param <= size; param++) {
+		      setParameter(stmt, param, ids.get(Math.min(param, ids.size()) - 1), Integer.class);
+		    }
+		  }
+
+	 /**
+	  * Totals the material cost of every project on the server, so no materials are loaded into
+	  * memory
+	  * 
+	  * @return One summary per project, ordered by project ID
+	  */
+	 public List<ProjectCostSummary> fetchProjectCosts() {
+		    return instrument("fetchProjectCosts", () -> withConnection(conn -> {
+		      try(PreparedStatement stmt = prepareStatement(conn, ALL_PROJECT_COSTS_SQL)) {
+		        try(ResultSet rs = stmt.executeQuery()) {
+		          List<ProjectCostSummary> costs = new ArrayList<>();
+
+		          while(rs.next()) {
+		            costs.add(toProjectCost(rs));
+		          }
+
+		          return costs;
+		        }
+		      }
+		    }));
+		  }
+
+	 /**
+	  * Totals the material cost of one project on the server
+	  * 
+	  * @param projectId The project ID
+	  * @return The summary, or empty if the project does not exist
+	  */
+	 public Optional<ProjectCostSummary> fetchProjectCost(Integer projectId) {
+		    return instrument("fetchProjectCost", () -> withConnection(conn -> {
+		      try(PreparedStatement stmt = prepareStatement(conn, ONE_PROJECT_COST_SQL)) {
+		        setParameter(stmt, 1, projectId, Integer.class);
+
+		        try(ResultSet rs = stmt.executeQuery()) {
+		          return rs.next() ? Optional.of(toProjectCost(rs)) : Optional.empty();
+		        }
+		      }
+		    }));
+		  }
 
-		    try(Connection conn = DbConnection.getConnection()) {
-		      startTransaction(conn);
+	 /**
+	  * Reads one row of the project cost queries
+	  * 
+	  * @param rs
+	  * @return The summary
+	  * @throws SQLException
+	  */
+	 private ProjectCostSummary toProjectCost(ResultSet rs) throws SQLException {
+		    return new ProjectCostSummary(rs.getInt("project_id"), rs.getString("project_name"),
+		        rs.getInt("material_count"), rs.getBigDecimal("total_cost"));
+		  }
 
-		      try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+	 /**
+	  * Sums the estimated and actual hours of the projects in each category on the server.
+	  * Categories without projects are included with zero hours. A project in several categories
+	  * counts toward each of them.
+	  * 
+	  * @return One summary per category, ordered by category name
+	  */
+	 public List<CategoryHoursSummary> fetchCategoryHours() {
+		    return instrument("fetchCategoryHours", () -> withConnection(conn -> {
+		      try(PreparedStatement stmt = prepareStatement(conn, CATEGORY_HOURS_SQL)) {
 		        try(ResultSet rs = stmt.executeQuery()) {
-		          List<Project> projects = new LinkedList<>();
+		          List<CategoryHoursSummary> hours = new ArrayList<>();
 
 		          while(rs.next()) {
-		            projects.add(extract(rs, Project.class));
+		            hours.add(new CategoryHoursSummary(rs.getInt("category_id"),
+		                rs.getString("category_name"), rs.getInt("project_count"),
+		                rs.getBigDecimal("estimated_hours"), rs.getBigDecimal("actual_hours")));
 		          }
-		          return projects;
+
+		          return hours;
 		        }
 		      }
-		      catch(Exception e) {
-		        rollbackTransaction(conn);
-		        throw new DbException(e);
+		    }));
+		  }
+
+	 /**
+	  * Counts the projects at each difficulty on the server
+	  * 
+	  * @return One count per difficulty that occurs, in ascending order, with projects without a
+	  *         difficulty first
+	  */
+	 public List<DifficultyCount> fetchDifficultyHistogram() {
+		    return instrument("fetchDifficultyHistogram", () -> withConnection(conn -> {
+		      try(PreparedStatement stmt = prepareStatement(conn, DIFFICULTY_HISTOGRAM_SQL)) {
+		        try(ResultSet rs = stmt.executeQuery()) {
+		          List<DifficultyCount> histogram = new ArrayList<>();
+
+		          while(rs.next()) {
+		            histogram.add(new DifficultyCount(rs.getObject("difficulty", Integer.class),
+		                rs.getInt("project_count")));
+		          }
+
+		          return histogram;
+		        }
 		      }
+		    }));
+		  }
+
+	 /**
+	  * Fetches only the project row, without materials, steps and categories. This and the three
+	  * public child fetches below each use their own connection, so they can run concurrently.
+	  * 
+	  * @param projectId The ID of the project to fetch
+	  * @return An Optional containing the project if found, otherwise empty
+	  */
+	 public Optional<Project> fetchProjectRowById(Integer projectId) {
+		    return instrument("fetchProjectRowById",
+		        () -> withConnection(conn -> Optional.ofNullable(fetchProjectRow(conn, projectId))));
+		  }
+
+	 /**
+	  * Fetches the materials of a project on a connection of its own
+	  * 
+	  * @param projectId
+	  * @return The project's materials
+	  */
+	 public List<Material> fetchMaterialsForProject(Integer projectId) {
+		    return instrument("fetchMaterialsForProject",
+		        () -> withConnection(conn -> fetchMaterialsForProject(conn, projectId)));
+		  }
+
+	 /**
+	  * Fetches the steps of a project on a connection of its own
+	  * 
+	  * @param projectId
+	  * @return The project's steps
+	  */
+	 public List<Step> fetchStepsForProject(Integer projectId) {
+		    return instrument("fetchStepsForProject",
+		        () -> withConnection(conn -> fetchStepsForProject(conn, projectId)));
+		  }
+
+	 /**
+	  * Fetches the categories of a project on a connection of its own
+	  * 
+	  * @param projectId
+	  * @return The project's categories
+	  */
+	 public List<Category> fetchCategoriesForProject(Integer projectId) {
+		    return instrument("fetchCategoriesForProject",
+		        () -> withConnection(conn -> fetchCategoriesForProject(conn, projectId)));
+		  }
+
+	 /**
+	  * Returns every category from the shared category dictionary, loading it if needed
+	  * 
+	  * @return The categories, ordered by ID
+	  */
+	 public List<Category> fetchAllCategories() {
+		    return instrument("fetchAllCategories", () -> withConnection(CATEGORIES::all));
+		  }
+
+	 /**
+	  * Discards the shared category dictionary so it is reloaded on next use. Call this after the
+	  * category table has been changed. Unknown category IDs reload it automatically.
+	  */
+	 public void refreshCategories() {
+		    CATEGORIES.refresh();
+		  }
+
+	 /**
+	  * Runs a read on a pooled connection in auto-commit mode and closes the connection afterward
+	  * 
+	  * @param <T> The result type
+	  * @param work The read to run
+	  * @return The result of the read
+	  */
+	 private <T> T withConnection(ConnectionWork<T> work) {
+		    try(Connection conn = DbConnection.getConnection()) {
+		      return work.apply(conn);
 		    }
 		    catch(SQLException e) {
 		      throw new DbException(e);
 		    }
 		  }
-	
+
 	 /**
-	  * Fetches a project by its ID 
+	  * Runs work in a transaction on a pooled connection. The transaction is committed if the work
+	  * completes and rolled back if it throws.
 	  * 
-	  * @param projectId The ID of the project to fetch
-	  * @return An Optional containing the project if found, otherwise empty
+	  * @param <T> The result type
+	  * @param work The work to run
+	  * @return The result of the work
+	  * @throws DbException Thrown if the work fails. A DbException thrown by the work is rethrown
+	  *         unchanged.
 	  */
-	 public Optional<Project> fetchProjectById(Integer projectId) {
-		    String sql = "SELECT * FROM " + PROJECT_TABLE + " WHERE project_id = ?";
-
+	 private <T> T inTransaction(ConnectionWork<T> work) {
 		    try(Connection conn = DbConnection.getConnection()) {
 		      startTransaction(conn);
-	
-		     
-		      try {
-		        Project project = null;
-
-		        try(PreparedStatement stmt = conn.prepareStatement(sql)) {
-		          setParameter(stmt, 1, projectId, Integer.class);
-		          
-		          try(ResultSet rs = stmt.executeQuery()) {
-		              if(rs.next()) {
-		                project = extract(rs, Project.class); //Extract project data
-		              }
-		            }
-		          }
-		        
-		      //If the project is found, fetch related materials, steps, and categories
-		        if(Objects.nonNull(project)) {
-		          project.getMaterials().addAll(fetchMaterialsForProject(conn, projectId));
-		          project.getSteps().addAll(fetchStepsForProject(conn, projectId));
-		          project.getCategories().addAll(fetchCategoriesForProject(conn, projectId));
-		        }
 
+		      try {
+		        T result = work.apply(conn);
 		        commitTransaction(conn);
-
-		     
-		        return Optional.ofNullable(project); //return found project 
+		        return result;
 		      }
 		      catch(Exception e) {
-		        rollbackTransaction(conn);  //rollback on error 
-		        throw new DbException(e);
+		        rollbackTransaction(conn);
+		        throw e instanceof DbException dbException ? dbException : new DbException(e);
 		      }
 		    }
 		    catch(SQLException e) {
 		      throw new DbException(e);
 		    }
 		  }
-	 
+
+	 /**
+	  * Work done with a connection that may throw SQLException
+	  * 
+	  * @param <T> The result type
+	  */
+	 @FunctionalInterface
+	 private interface ConnectionWork<T> {
+		    T apply(Connection conn) throws SQLException;
+		  }
+
 	 /**
 	  * Fetches categories associated with a project 
 	  * 
@@ -161,21 +1976,14 @@ public class ProjectDao extends DaoBase {
 	  */
 	 
 	 private List<Category> fetchCategoriesForProject(Connection conn, Integer projectId) {
-		    // @formatter:off
-		    String sql = ""
-		        + "SELECT c.* FROM " + CATEGORY_TABLE + " c "
-		        + "JOIN " + PROJECT_CATEGORY_TABLE + " pc USING (category_id) "
-		        + "WHERE project_id = ?";
-		    // @formatter:on
-
-		    try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+		    try(PreparedStatement stmt = prepareStatement(conn, FETCH_CATEGORIES_SQL)) {
 		      setParameter(stmt, 1, projectId, Integer.class);
 
 		      try(ResultSet rs = stmt.executeQuery()) {
-		        List<Category> categories = new LinkedList<>();
+		        List<Category> categories = new ArrayList<>();
 
 		        while(rs.next()) {
-		          categories.add(extract(rs, Category.class));
+		          categories.add(CATEGORIES.resolve(conn, rs.getInt("category_id")));
 		        }
 
 		        return categories;
@@ -194,19 +2002,11 @@ public class ProjectDao extends DaoBase {
 	  * @throws SQLException
 	  */
 	 private List<Step> fetchStepsForProject(Connection conn, Integer projectId) throws SQLException {
-		    String sql = "SELECT * FROM " + STEP_TABLE + " WHERE project_id = ?";
-
-		    try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+		    try(PreparedStatement stmt = prepareStatement(conn, FETCH_STEPS_SQL)) {
 		      setParameter(stmt, 1, projectId, Integer.class);
 
 		      try(ResultSet rs = stmt.executeQuery()) {
-		        List<Step> steps = new LinkedList<>();
-
-		        while(rs.next()) {
-		          steps.add(extract(rs, Step.class));
-		        }
-
-		        return steps;
+		        return extractAll(rs, Step.class);
 		      }
 		    }
 		  }
@@ -222,19 +2022,11 @@ public class ProjectDao extends DaoBase {
 	 
 	 private List<Material> fetchMaterialsForProject(Connection conn, Integer projectId)
 		      throws SQLException {
-		    String sql = "SELECT * FROM " + MATERIAL_TABLE + " WHERE project_id = ?";
-
-		    try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+		    try(PreparedStatement stmt = prepareStatement(conn, FETCH_MATERIALS_SQL)) {
 		      setParameter(stmt, 1, projectId, Integer.class);
 
 		      try(ResultSet rs = stmt.executeQuery()) {
-		        List<Material> materials = new LinkedList<>();
-
-		        while(rs.next()) {
-		          materials.add(extract(rs, Material.class));
-		        }
-
-		        return materials;
+		        return extractAll(rs, Material.class);
 		      }
 		    }
 		  }
@@ -247,76 +2039,401 @@ public class ProjectDao extends DaoBase {
 	  */
 	 
 	 public boolean modifyProjectDetails(Project project) {
-		    // @formatter:off
-		    String sql = ""
-		        + "UPDATE " + PROJECT_TABLE + " SET "
-		        + "project_name = ?, "
-		        + "estimated_hours = ?, "
-		        + "actual_hours = ?, "
-		        + "difficulty = ?, "
-		        + "notes = ? "
-		        + "WHERE project_id = ?";
-		    // @formatter:on
+		    return instrument("modifyProjectDetails", () -> {
+			    try(Connection conn = DbConnection.getConnection()) {
+			      startTransaction(conn);
 
-		    try(Connection conn = DbConnection.getConnection()) {
-		      startTransaction(conn);
+			      try(PreparedStatement stmt = prepareStatement(conn, MODIFY_PROJECT_SQL)) {
+			        setParameter(stmt, 1, project.getProjectName(), String.class);
+			        setParameter(stmt, 2, project.getEstimatedHours(), BigDecimal.class);
+			        setParameter(stmt, 3, project.getActualHours(), BigDecimal.class);
+			        setParameter(stmt, 4, project.getDifficulty(), Integer.class);
+			        setParameter(stmt, 5, project.getNotes(), String.class);
+			        setParameter(stmt, 6, project.getProjectId(), Integer.class);
+
+			        boolean modified = stmt.executeUpdate() == 1; //Check if one row was updated 
+			        commitTransaction(conn);
+
+			        if(modified) {
+			          project.clearChanges();
+			        }
+
+			        return modified;
+			      }
+			      catch(Exception e) {
+			        rollbackTransaction(conn);
+			        throw new DbException(e);
+			      }
+			    }
+			    catch(SQLException e) {
+			      throw new DbException(e);
+			    }
+		    });
+		  }
+	 
+	 /**
+	  * Modifies the details of a project only if it is still at the version the caller read. No
+	  * lock is held between the read and the update; a concurrent change is detected instead,
+	  * because it has incremented the version. The new version is set on the project.
+	  * 
+	  * @param project The project containing updated details
+	  * @param expectedVersion The version the details were based on
+	  * @return The new version
+	  * @throws OptimisticLockException Thrown if the project has been changed since that version
+	  * @throws DbException Thrown if the project does not exist
+	  */
+	 public int modifyProjectDetails(Project project, int expectedVersion) {
+		    return instrument("modifyProjectDetailsIfVersion", () -> inTransaction(conn -> {
+		      Integer projectId = project.getProjectId();
 
-		      try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+		      try(PreparedStatement stmt = prepareStatement(conn, MODIFY_PROJECT_IF_VERSION_SQL)) {
 		        setParameter(stmt, 1, project.getProjectName(), String.class);
 		        setParameter(stmt, 2, project.getEstimatedHours(), BigDecimal.class);
 		        setParameter(stmt, 3, project.getActualHours(), BigDecimal.class);
 		        setParameter(stmt, 4, project.getDifficulty(), Integer.class);
 		        setParameter(stmt, 5, project.getNotes(), String.class);
-		        setParameter(stmt, 6, project.getProjectId(), Integer.class);
+		        setParameter(stmt, 6, projectId, Integer.class);
+		        setParameter(stmt, 7, expectedVersion, Integer.class);
 
-		        boolean modified = stmt.executeUpdate() == 1; //Check if one row was updated 
-		        commitTransaction(conn);
+		        if(stmt.executeUpdate() == 0) {
+		          throw updateFailure(conn, projectId, expectedVersion);
+		        }
+		      }
+
+		      project.setVersion(expectedVersion + 1);
+		      project.clearChanges();
+		      return expectedVersion + 1;
+		    }));
+		  }
+
+	 /**
+	  * Modifies only the detail columns changed on the project (see
+	  * {@link Project#getChangedColumns()}), so an unchanged notes column, for example, is not sent
+	  * again. A project without changes is not written and no round trip is made. If the project has
+	  * a version, the update succeeds only if that is still the current version. On success the
+	  * changes are cleared and the new version is set on the project.
+	  * 
+	  * The UPDATE for each set of columns is built once and reused, so the statement cache sees at
+	  * most one statement per column set.
+	  * 
+	  * @param project The project with changed details
+	  * @return true if the project was written, false if it had no changes
+	  * @throws OptimisticLockException Thrown if the project has been changed since its version
+	  * @throws DbException Thrown if the project does not exist
+	  */
+	 public boolean modifyChangedProjectDetails(Project project) {
+		    if(!project.hasChanges()) {
+		      return false;
+		    }
+
+		    return instrument("modifyChangedProjectDetails", () -> inTransaction(conn -> {
+		      Integer projectId = project.getProjectId();
+		      Integer expectedVersion = project.getVersion();
+		      Set<Project.Column> columns = project.getChangedColumns();
+		      String sql = partialUpdateSql(columns, Objects.nonNull(expectedVersion));
+
+		      try(PreparedStatement stmt = prepareStatement(conn, sql)) {
+		        int param = 1;
+
+		        /* The columns are iterated in the same order partialUpdateSql() lists them. */
+		        for(Project.Column column : columns) {
+		          switch(column) {
+		            case PROJECT_NAME ->
+		                setParameter(stmt, param++, project.getProjectName(), String.class);
+		            case ESTIMATED_HOURS ->
+		                setParameter(stmt, param++, project.getEstimatedHours(), BigDecimal.class);
+		            case ACTUAL_HOURS ->
+		                setParameter(stmt, param++, project.getActualHours(), BigDecimal.class);
+		            case DIFFICULTY ->
+		                setParameter(stmt, param++, project.getDifficulty(), Integer.class);
+		            case NOTES -> setParameter(stmt, param++, project.getNotes(), String.class);
+		          }
+		        }
 
-		        return modified;
+		        setParameter(stmt, param++, projectId, Integer.class);
+
+		        if(Objects.nonNull(expectedVersion)) {
+		          setParameter(stmt, param, expectedVersion, Integer.class);
+		        }
+
+		        if(stmt.executeUpdate() == 0) {
+		          throw updateFailure(conn, projectId, expectedVersion);
+		        }
 		      }
-		      catch(Exception e) {
-		        rollbackTransaction(conn);
-		        throw new DbException(e);
+
+		      if(Objects.nonNull(expectedVersion)) {
+		        project.setVersion(expectedVersion + 1);
 		      }
+
+		      project.clearChanges();
+		      return true;
+		    }));
+		  }
+
+	 /**
+	  * Returns the UPDATE statement for a set of changed columns, building it on first use
+	  * 
+	  * @param columns The changed columns
+	  * @param checkVersion true to update only if the version matches
+	  * @return The SQL
+	  */
+	 private static String partialUpdateSql(Set<Project.Column> columns, boolean checkVersion) {
+		    int key = checkVersion ? VERSION_CHECK_KEY : 0;
+
+		    for(Project.Column column : columns) {
+		      key |= 1 << column.ordinal();
 		    }
-		    catch(SQLException e) {
-		      throw new DbException(e);
+
+		    return PARTIAL_UPDATE_SQL.computeIfAbsent(key, unused -> {
+		      StringBuilder sql = new StringBuilder("UPDATE " + PROJECT_TABLE + " SET ");
+
+		      for(Project.Column column : columns) {
+		        sql.append(column.name().toLowerCase(Locale.ROOT)).append(" = ?, ");
+		      }
+
+		      sql.append("version = version + 1 WHERE project_id = ? AND " + NOT_PURGED);
+		      return checkVersion ? sql.append(" AND version = ?").toString() : sql.toString();
+		    });
+		  }
+
+	 /**
+	  * Explains why a project UPDATE matched no row: the project was deleted, or it was changed
+	  * since the expected version
+	  * 
+	  * @param conn
+	  * @param projectId
+	  * @param expectedVersion The version the update was conditional on, or null
+	  * @return The exception to throw
+	  * @throws SQLException
+	  */
+	 private DbException updateFailure(Connection conn, Integer projectId, Integer expectedVersion)
+		      throws SQLException {
+		    Optional<Integer> version =
+		        Objects.isNull(expectedVersion) ? Optional.empty() : fetchProjectVersion(conn, projectId);
+
+		    if(version.isEmpty()) {
+		      return new DbException("Project with ID=" + projectId + " does not exist.");
 		    }
+
+		    return new OptimisticLockException(projectId, expectedVersion, version.get());
 		  }
-	 
+
 	 /**
-	  * Deletes a project by its ID
+	  * Reads only the version of a project. This is a primary key lookup, so it is a cheap way to
+	  * check whether a copy of the project is still current.
 	  * 
 	  * @param projectId
-	  * @return true if the project was deleted, otherwise false
+	  * @return The version, or empty if the project does not exist
 	  */
-	 
-	 public boolean deleteProject(Integer projectId) {
-		    String sql = "DELETE FROM " + PROJECT_TABLE + " WHERE project_id = ?";
+	 public Optional<Integer> fetchProjectVersion(Integer projectId) {
+		    return instrument("fetchProjectVersion",
+		        () -> withConnection(conn -> fetchProjectVersion(conn, projectId)));
+		  }
 
-		    try(Connection conn = DbConnection.getConnection()) {
-		      startTransaction(conn);
+	 private Optional<Integer> fetchProjectVersion(Connection conn, Integer projectId)
+		      throws SQLException {
+		    try(PreparedStatement stmt = prepareStatement(conn, FETCH_PROJECT_VERSION_SQL)) {
+		      setParameter(stmt, 1, projectId, Integer.class);
 
-		      try(PreparedStatement stmt = conn.prepareStatement(sql)) {
-		        setParameter(stmt, 1, projectId, Integer.class);
+		      try(ResultSet rs = stmt.executeQuery()) {
+		        return rs.next() ? Optional.of(rs.getInt("version")) : Optional.empty();
+		      }
+		    }
+		  }
+
+	 /**
+	  * Modifies the details of many projects with one batched UPDATE in a single transaction
+	  * 
+	  * @param projects The projects containing updated details. Each project ID should appear once.
+	  * @return The IDs of the projects that do not exist. The other projects were modified.
+	  */
+	 public List<Integer> modifyProjectDetails(Collection<Project> projects) {
+		    return instrument("modifyProjectDetailsBatch", () -> {
+		      List<Integer> missing = new ArrayList<>();
+
+		      if(projects.isEmpty()) {
+		        return missing;
+		      }
 
-		        /*
-		         * If the project ID is correct, the number of rows modified will be 1. This is the value
-		         * returned by executeUpdate(). The value will be 1 even if child rows are deleted because
-		         * ON DELETE CASCADE is specified.
-		         */
-		        boolean deleted = stmt.executeUpdate() == 1;
+		      try(Connection conn = DbConnection.getConnection()) {
+		        startTransaction(conn);
 
-		        commitTransaction(conn);
-		        return deleted;
+		        try(PreparedStatement stmt = prepareStatement(conn, MODIFY_PROJECT_SQL)) {
+		          for(Project project : projects) {
+		            setParameter(stmt, 1, project.getProjectName(), String.class);
+		            setParameter(stmt, 2, project.getEstimatedHours(), BigDecimal.class);
+		            setParameter(stmt, 3, project.getActualHours(), BigDecimal.class);
+		            setParameter(stmt, 4, project.getDifficulty(), Integer.class);
+		            setParameter(stmt, 5, project.getNotes(), String.class);
+		            setParameter(stmt, 6, project.getProjectId(), Integer.class);
+		            stmt.addBatch();
+		          }
+
+		          int[] counts = stmt.executeBatch();
+		          int index = 0;
+
+		          /* Connector/J reports matched rows, so 0 means the project does not exist. */
+		          for(Project project : projects) {
+		            if(counts[index++] == 0) {
+		              missing.add(project.getProjectId());
+		            }
+		          }
+
+		          commitTransaction(conn);
+		          return missing;
+		        }
+		        catch(Exception e) {
+		          rollbackTransaction(conn);
+		          throw new DbException(e);
+		        }
 		      }
-		      catch(Exception e) {
-		        rollbackTransaction(conn);
+		      catch(SQLException e) {
 		        throw new DbException(e);
 		      }
+		    });
+		  }
+
+	 /**
+	  * Hides projects so that they can be purged: they disappear from every read at once and can
+	  * no longer be changed. Their rows are deleted later by {@link #purgeChunk(Integer, int)}. The
+	  * projects are marked with one batched UPDATE in a single transaction.
+	  * 
+	  * @param projectIds The projects to purge
+	  * @return The IDs that do not exist or are already being purged. The others were hidden.
+	  */
+	 public List<Integer> requestPurge(Collection<Integer> projectIds) {
+		    return instrument("requestPurge", () -> {
+		      List<Integer> notHidden = new ArrayList<>();
+
+		      if(projectIds.isEmpty()) {
+		        return notHidden;
+		      }
+
+		      return inTransaction(conn -> {
+		        try(PreparedStatement stmt = prepareStatement(conn, REQUEST_PURGE_SQL)) {
+		          for(Integer projectId : projectIds) {
+		            setParameter(stmt, 1, projectId, Integer.class);
+		            stmt.addBatch();
+		          }
+
+		          int[] counts = stmt.executeBatch();
+		          int index = 0;
+
+		          for(Integer projectId : projectIds) {
+		            if(counts[index++] == 0) {
+		              notHidden.add(projectId);
+		            }
+		          }
+		        }
+
+		        return notHidden;
+		      });
+		    });
+		  }
+
+	 /**
+	  * Returns the projects that are hidden but not yet purged, oldest request first. After a crash
+	  * or shutdown, purge these to finish the interrupted purges.
+	  * 
+	  * @return The project IDs
+	  */
+	 public List<Integer> fetchPurgeRequests() {
+		    return instrument("fetchPurgeRequests", () -> withConnection(conn -> {
+		      try(PreparedStatement stmt = prepareStatement(conn, FETCH_PURGE_REQUESTS_SQL)) {
+		        try(ResultSet rs = stmt.executeQuery()) {
+		          List<Integer> projectIds = new ArrayList<>();
+
+		          while(rs.next()) {
+		            projectIds.add(rs.getInt("project_id"));
+		          }
+
+		          return projectIds;
+		        }
+		      }
+		    }));
+		  }
+
+	 /**
+	  * Deletes the next chunk of a hidden project's rows in a short transaction: up to maxRows
+	  * category links, steps or materials, one table at a time. Once no child rows are left, the
+	  * project row itself is deleted. Call until {@link PurgeChunk#isFinished()}. Each call only
+	  * deletes rows, so it is safe to repeat after a failure or crash. Nothing is deleted unless the
+	  * project is hidden.
+	  * 
+	  * @param projectId A project hidden by {@link #requestPurge(Collection)}
+	  * @param maxRows The most child rows deleted by this call
+	  * @return The child rows deleted, and whether the project row was deleted. A project that does
+	  *         not exist or is not hidden deletes nothing.
+	  */
+	 public PurgeChunk purgeChunk(Integer projectId, int maxRows) {
+		    if(maxRows < 1) {
+		      throw new IllegalArgumentException("Chunk size must be at least 1: " + maxRows);
 		    }
-		    catch(SQLException e) {
-		      throw new DbException(e);
-		    }
+
+		    return instrument("purgeChunk", () -> inTransaction(conn -> {
+		      try(PreparedStatement stmt = prepareStatement(conn, LOCK_PURGED_PROJECT_SQL)) {
+		        setParameter(stmt, 1, projectId, Integer.class);
+
+		        try(ResultSet rs = stmt.executeQuery()) {
+		          if(!rs.next()) {
+		            return new PurgeChunk(0, false);
+		          }
+		        }
+		      }
+
+		      for(String sql : PURGE_CHILD_ROWS_SQL) {
+		        try(PreparedStatement stmt = prepareStatement(conn, sql)) {
+		          setParameter(stmt, 1, projectId, Integer.class);
+		          setParameter(stmt, 2, maxRows, Integer.class);
+
+		          int deleted = stmt.executeUpdate();
+
+		          if(deleted > 0) {
+		            return new PurgeChunk(deleted, false);
+		          }
+		        }
+		      }
+
+		      try(PreparedStatement stmt = prepareStatement(conn, DELETE_PURGED_PROJECT_SQL)) {
+		        setParameter(stmt, 1, projectId, Integer.class);
+		        return new PurgeChunk(0, stmt.executeUpdate() == 1);
+		      }
+		    }));
+		  }
+
+	 /**
+	  * Deletes a project by its ID. A hidden project is left to its purge, as if it did not exist.
+	  * 
+	  * @param projectId
+	  * @return true if the project was deleted, otherwise false
+	  */
+	 
+	 public boolean deleteProject(Integer projectId) {
+		    return instrument("deleteProject", () -> {
+			    try(Connection conn = DbConnection.getConnection()) {
+			      startTransaction(conn);
+
+			      try(PreparedStatement stmt = prepareStatement(conn, DELETE_PROJECT_SQL)) {
+			        setParameter(stmt, 1, projectId, Integer.class);
+
+			        /*
+			         * If the project ID is correct, the number of rows modified will be 1. This is the value
+			         * returned by executeUpdate(). The value will be 1 even if child rows are deleted because
+			         * ON DELETE CASCADE is specified.
+			         */
+			        boolean deleted = stmt.executeUpdate() == 1;
+
+			        commitTransaction(conn);
+			        return deleted;
+			      }
+			      catch(Exception e) {
+			        rollbackTransaction(conn);
+			        throw new DbException(e);
+			      }
+			    }
+			    catch(SQLException e) {
+			      throw new DbException(e);
+			    }
+		    });
 		  }
 }
@@ -0,0 +1,34 @@
+package project.dao;
+
+/**
+ * Selects how {@link ProjectDao#fetchProjectById(Integer, ProjectLoadMode)} loads a project and
+ * its materials, steps and categories.
+ */
+public enum ProjectLoadMode {
+
+	/**
+	 * One query for the project row followed by one query per child table, all on the same
+	 * connection and transaction. Four round trips.
+	 */
+	SEQUENTIAL,
+
+	/**
+	 * The project row and all child rows are read with a single {@code UNION ALL} query. One round
+	 * trip, which matters most when the database is remote.
+	 */
+	SINGLE_ROUND_TRIP,
+
+	/**
+	 * The project row and the three child tables are read concurrently on four pooled
+	 * connections. The latency is that of the slowest query rather than the sum, but the reads are
+	 * not in one transaction. The four connections are borrowed together; when they are not all
+	 * free at once, the project is loaded like {@link #SEQUENTIAL} instead of waiting.
+	 */
+	PARALLEL,
+
+	/**
+	 * Like {@link #PARALLEL}, but each connection reads from a consistent snapshot transaction, and
+	 * all four snapshots are opened before any query runs.
+	 */
+	PARALLEL_SNAPSHOT
+}
@@ -0,0 +1,13 @@
+package project.dao;
+
+import project.entity.Project;
+
+/**
+ * One match returned by {@link ProjectDao#searchProjects(String, int, int)}.
+ *
+ * @param project The matching project summary, without notes, materials, steps or categories
+ * @param relevance The MySQL full-text relevance of the project name and notes plus that of its
+ *        step text. Higher is better; values are only comparable within one search.
+ */
+public record ProjectSearchResult(Project project, double relevance) {
+}
@@ -0,0 +1,18 @@
+package project.dao;
+
+/**
+ * The result of one {@link ProjectDao#purgeChunk(Integer, int)} call.
+ *
+ * @param rowsDeleted The number of child rows deleted
+ * @param projectDeleted True if this call deleted the project row itself
+ */
+public record PurgeChunk(int rowsDeleted, boolean projectDeleted) {
+
+  /**
+   * @return True if the project has no rows left to purge: either its row was just deleted, or it
+   *         does not exist or is not hidden
+   */
+  public boolean isFinished() {
+    return rowsDeleted == 0;
+  }
+}
@@ -3,28 +3,55 @@
  */
 package project.entity;
 
+import java.util.Objects;
+
 /**
+ * A category is immutable. Categories read from the database are shared instances taken from
+ * the DAO's category dictionary, so many projects can hold the same object.
+ * 
  * @author Promineo
  *
  */
-public class Category {
-  private Integer categoryId;
-  private String categoryName;
+public final class Category {
+  private final Integer categoryId;
+  private final String categoryName;
 
-  public Integer getCategoryId() {
-    return categoryId;
+  /**
+   * @param categoryId The category ID
+   * @param categoryName The category name. May be null when only the ID is needed, e.g. to link
+   *        a new project to an existing category.
+   */
+  public Category(Integer categoryId, String categoryName) {
+    this.categoryId = categoryId;
+    this.categoryName = categoryName;
   }
 
-  public void setCategoryId(Integer categoryId) {
-    this.categoryId = categoryId;
+  public Integer getCategoryId() {
+    return categoryId;
   }
 
   public String getCategoryName() {
     return categoryName;
   }
 
-  public void setCategoryName(String categoryName) {
-    this.categoryName = categoryName;
+  /**
+   * Categories are equal when they have the same ID, so an ID-only category made for linking
+   * equals the dictionary instance of the same row. Categories without an ID are equal only to
+   * themselves.
+   */
+  @Override
+  public boolean equals(Object obj) {
+    if(this == obj) {
+      return true;
+    }
+
+    return obj instanceof Category other && Objects.nonNull(categoryId)
+        && categoryId.equals(other.categoryId);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.isNull(categoryId) ? System.identityHashCode(this) : categoryId.hashCode();
   }
 
   @Override
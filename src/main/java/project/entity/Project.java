@@ -4,25 +4,43 @@
 package project.entity;
 
 import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
 /**
+ * A project tracks which of its detail columns were changed by a setter, so that an update can
+ * write only those columns. Projects read from the database start with no changes.
+ * 
  * @author Promineo
  *
  */
 public class Project {
+  /**
+   * The detail columns of the project row that can be changed.
+   */
+  public enum Column {
+    PROJECT_NAME, ESTIMATED_HOURS, ACTUAL_HOURS, DIFFICULTY, NOTES
+  }
+
+
   private Integer projectId;
   private String projectName;
   private BigDecimal estimatedHours;
   private BigDecimal actualHours;
   private Integer difficulty;
   private String notes;
+  private Integer version;
 
   private List<Material> materials = new LinkedList<>();
   private List<Step> steps = new LinkedList<>();
   private List<Category> categories = new LinkedList<>();
 
+  private final Set<Column> changedColumns = EnumSet.noneOf(Column.class);
+
   public Integer getProjectId() {
     return projectId;
   }
@@ -36,6 +54,7 @@ public class Project {
   }
 
   public void setProjectName(String projectName) {
+    markChanged(Column.PROJECT_NAME, this.projectName, projectName);
     this.projectName = projectName;
   }
 
@@ -44,6 +63,7 @@ public class Project {
   }
 
   public void setEstimatedHours(BigDecimal estimatedHours) {
+    markChanged(Column.ESTIMATED_HOURS, this.estimatedHours, estimatedHours);
     this.estimatedHours = estimatedHours;
   }
 
@@ -52,6 +72,7 @@ public class Project {
   }
 
   public void setActualHours(BigDecimal actualHours) {
+    markChanged(Column.ACTUAL_HOURS, this.actualHours, actualHours);
     this.actualHours = actualHours;
   }
 
@@ -60,6 +81,7 @@ public class Project {
   }
 
   public void setDifficulty(Integer difficulty) {
+    markChanged(Column.DIFFICULTY, this.difficulty, difficulty);
     this.difficulty = difficulty;
   }
 
@@ -68,9 +90,55 @@ public class Project {
   }
 
   public void setNotes(String notes) {
+    markChanged(Column.NOTES, this.notes, notes);
     this.notes = notes;
   }
 
+  /**
+   * The row version. It starts at 1 and is incremented by every change to the project or its
+   * materials, steps and categories.
+   */
+  public Integer getVersion() {
+    return version;
+  }
+
+  public void setVersion(Integer version) {
+    this.version = version;
+  }
+
+  /**
+   * @return The detail columns changed since the project was read or last saved, or since
+   *         {@link #clearChanges()}
+   */
+  public Set<Column> getChangedColumns() {
+    return Collections.unmodifiableSet(changedColumns);
+  }
+
+  public boolean hasChanges() {
+    return !changedColumns.isEmpty();
+  }
+
+  /**
+   * Marks every detail column as unchanged, e.g. after the project was saved.
+   */
+  public void clearChanges() {
+    changedColumns.clear();
+  }
+
+  /*
+   * Setting a column to an equal value is not a change. Decimals are compared by value, so 1.5
+   * and 1.50 are equal.
+   */
+  private void markChanged(Column column, Object oldValue, Object newValue) {
+    boolean equal = oldValue instanceof BigDecimal oldDecimal
+        && newValue instanceof BigDecimal newDecimal ? oldDecimal.compareTo(newDecimal) == 0
+            : Objects.equals(oldValue, newValue);
+
+    if(!equal) {
+      changedColumns.add(column);
+    }
+  }
+
   public List<Material> getMaterials() {
     return materials;
   }
@@ -93,6 +161,7 @@ public class Project {
     result += "\n   actualHours=" + actualHours;
     result += "\n   difficulty=" + difficulty;
     result += "\n   notes=" + notes;
+    result += "\n   version=" + version;
     
     result += "\n   Materials:";
     
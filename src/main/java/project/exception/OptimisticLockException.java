@@ -0,0 +1,34 @@
+package project.exception;
+
+/**
+ * Thrown when a conditional update finds that the row was changed since the caller read it: the
+ * version the caller expected is no longer the current version.
+ */
+@SuppressWarnings("serial")
+public class OptimisticLockException extends DbException {
+	private final Integer projectId;
+	private final int expectedVersion;
+	private final int currentVersion;
+
+	public OptimisticLockException(Integer projectId, int expectedVersion, int currentVersion) {
+		super("Project with ID=" + projectId + " was changed by someone else (expected version "
+				+ expectedVersion + ", found " + currentVersion + ").");
+		
+		this.projectId = projectId;
+		this.expectedVersion = expectedVersion;
+		this.currentVersion = currentVersion;
+	}
+
+	public Integer getProjectId() {
+		return projectId;
+	}
+
+	public int getExpectedVersion() {
+		return expectedVersion;
+	}
+
+	public int getCurrentVersion() {
+		return currentVersion;
+	}
+
+}
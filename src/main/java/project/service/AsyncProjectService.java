@@ -0,0 +1,130 @@
+package project.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import project.dao.DbConnection;
+import project.dao.ProjectLoadMode;
+import project.entity.Project;
+import project.exception.DbException;
+
+/**
+ * An asynchronous facade over {@link ProjectService} for callers that serve many concurrent
+ * requests. Each call runs its blocking JDBC work on a virtual thread and returns a
+ * {@link CompletableFuture}. A semaphore sized to the connection pool limits how many calls use
+ * the database at once, so a burst of requests waits here on cheap virtual threads rather than
+ * timing out in the pool.
+ *
+ * Failures complete the future exceptionally with the same exceptions the blocking service throws
+ * (wrapped in a CompletionException by the CompletableFuture API).
+ */
+public class AsyncProjectService implements AutoCloseable {
+	private final ProjectService projectService;
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+	private final Semaphore permits;
+
+	/**
+	 * Creates a facade over a new ProjectService, allowing as many concurrent database calls as
+	 * the connection pool has connections.
+	 */
+	public AsyncProjectService() {
+		this(new ProjectService(), DbConnection.getMaxPoolSize());
+	}
+
+	/**
+	 * @param projectService The service that does the work
+	 * @param maxConcurrency The maximum number of calls using the database at once
+	 */
+	public AsyncProjectService(ProjectService projectService, int maxConcurrency) {
+		this.projectService = projectService;
+		this.permits = new Semaphore(maxConcurrency, true);
+	}
+
+	public CompletableFuture<Project> addProjectAsync(Project project) {
+		return submit(() -> projectService.addProject(project));
+	}
+
+	public CompletableFuture<List<Project>> addProjectsAsync(Collection<Project> projects) {
+		return submit(() -> projectService.addProjects(projects));
+	}
+
+	public CompletableFuture<List<Project>> fetchAllProjectsAsync() {
+		return submit(projectService::fetchAllProjects);
+	}
+
+	public CompletableFuture<List<Project>> fetchProjectPageAsync(String afterProjectName,
+			Integer afterProjectId, int pageSize) {
+		return submit(
+				() -> projectService.fetchProjectPage(afterProjectName, afterProjectId, pageSize));
+	}
+
+	public CompletableFuture<Project> fetchProjectByIdAsync(Integer projectId) {
+		return submit(() -> projectService.fetchProjectById(projectId));
+	}
+
+	public CompletableFuture<List<Project>> fetchProjectsByIdAsync(Collection<Integer> projectIds) {
+		return submit(() -> projectService.fetchProjectsById(projectIds));
+	}
+
+	public CompletableFuture<Void> modifyProjectDetailsAsync(Project project) {
+		return submit(() -> {
+			projectService.modifyProjectDetails(project);
+			return null;
+		});
+	}
+
+	public CompletableFuture<Void> deleteProjectAsync(Integer projectId) {
+		return submit(() -> {
+			projectService.deleteProject(projectId);
+			return null;
+		});
+	}
+
+	/**
+	 * Fetches a project with {@link ProjectLoadMode#PARALLEL}: the project row and its materials,
+	 * steps and categories are read as four concurrent queries, so the latency is that of the
+	 * slowest query rather than the sum of all four. Like {@link #fetchProjectByIdAsync(Integer)},
+	 * the project is served from the cache when possible and includes pending buffered updates.
+	 *
+	 * @param projectId The project ID
+	 * @return A future completed with the project, or exceptionally with NoSuchElementException if
+	 *         the project does not exist
+	 */
+	public CompletableFuture<Project> fetchProjectByIdFanOutAsync(Integer projectId) {
+		return submit(() -> projectService.fetchProjectById(projectId, ProjectLoadMode.PARALLEL));
+	}
+
+	/**
+	 * Stops accepting work and waits for running calls to finish.
+	 */
+	@Override
+	public void close() {
+		executor.close();
+	}
+
+	/*
+	 * Runs the work on a virtual thread once a permit is available.
+	 */
+	private <T> CompletableFuture<T> submit(Supplier<T> work) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				permits.acquire();
+			}
+			catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DbException("Interrupted while waiting for a database permit.", e);
+			}
+
+			try {
+				return work.get();
+			}
+			finally {
+				permits.release();
+			}
+		}, executor);
+	}
+}
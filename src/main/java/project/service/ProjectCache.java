@@ -0,0 +1,324 @@
+package project.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import project.entity.Material;
+import project.entity.Project;
+import project.entity.Step;
+
+/**
+ * A bounded, read-through cache of projects used by {@link ProjectService}. It holds full project
+ * details keyed by project ID plus the project list. Entries expire after a time-to-live; when
+ * the cache is full, the least recently used project is evicted.
+ *
+ * A load that races with an invalidation is not cached, so a write is never hidden by a read that
+ * started before it. The cache keeps its own copies: every caller gets a fresh copy of a cached
+ * project, with its materials and steps, so changing it never changes what other callers see.
+ *
+ * If a version check is given, an expired project is first revalidated: its version is compared
+ * with the current one, and if they match the entry is kept for another time-to-live instead of
+ * loading the whole project again.
+ */
+public class ProjectCache {
+	private final int maxSize;
+	private final long ttlMillis;
+	private final Function<Integer, Optional<Integer>> versionCheck;
+
+	private final Map<Integer, Entry<Project>> projects = new LinkedHashMap<>(16, 0.75f, true);
+	private Entry<List<Project>> allProjects;
+	private long generation;
+	private volatile boolean enabled = true;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder revalidations = new LongAdder();
+
+	/**
+	 * @param maxSize The maximum number of projects held
+	 * @param ttlMillis How long an entry may be served after it was loaded
+	 */
+	public ProjectCache(int maxSize, long ttlMillis) {
+		this(maxSize, ttlMillis, null);
+	}
+
+	/**
+	 * @param maxSize The maximum number of projects held
+	 * @param ttlMillis How long an entry may be served before it is revalidated
+	 * @param versionCheck Returns the current version of a project, or empty if it does not exist.
+	 *        May be null, in which case expired entries are always reloaded.
+	 */
+	public ProjectCache(int maxSize, long ttlMillis,
+			Function<Integer, Optional<Integer>> versionCheck) {
+		if(maxSize < 1 || ttlMillis < 1) {
+			throw new IllegalArgumentException(
+					"Invalid cache settings: maxSize=" + maxSize + ", ttlMillis=" + ttlMillis);
+		}
+
+		this.maxSize = maxSize;
+		this.ttlMillis = ttlMillis;
+		this.versionCheck = versionCheck;
+	}
+
+	/**
+	 * Returns the cached project or loads, caches and returns it.
+	 *
+	 * @param projectId The project ID
+	 * @param loader Loads the project on a miss. Exceptions are passed to the caller and nothing
+	 *        is cached.
+	 * @return The project
+	 */
+	public Project getProject(Integer projectId, Supplier<Project> loader) {
+		if(!enabled) {
+			return loader.get();
+		}
+
+		long loadGeneration;
+		Project expired = null;
+
+		synchronized(this) {
+			Entry<Project> entry = projects.get(projectId);
+
+			if(Objects.nonNull(entry)) {
+				if(!entry.isExpired()) {
+					hits.increment();
+					return copyOf(entry.value);
+				}
+
+				projects.remove(projectId);
+				expired = entry.value;
+			}
+
+			loadGeneration = generation;
+		}
+
+		if(Objects.nonNull(expired) && Objects.nonNull(versionCheck)
+				&& Objects.nonNull(expired.getVersion())) {
+			boolean current = versionCheck.apply(projectId).filter(expired.getVersion()::equals)
+					.isPresent();
+
+			synchronized(this) {
+				if(current && enabled && loadGeneration == generation) {
+					projects.put(projectId, new Entry<>(expired, ttlMillis));
+					evictOverflow();
+					revalidations.increment();
+					return copyOf(expired);
+				}
+
+				loadGeneration = generation;
+			}
+		}
+
+		if(Objects.nonNull(expired)) {
+			evictions.increment();
+		}
+
+		misses.increment();
+
+		Project project = loader.get();
+		Project cached = Objects.isNull(project) ? null : copyOf(project);
+
+		synchronized(this) {
+			if(enabled && loadGeneration == generation) {
+				projects.put(projectId, new Entry<>(cached, ttlMillis));
+				evictOverflow();
+			}
+		}
+
+		return project;
+	}
+
+	/**
+	 * Returns the cached project list or loads, caches and returns it.
+	 *
+	 * @param loader Loads the list on a miss
+	 * @return An unmodifiable list of projects
+	 */
+	public List<Project> getAllProjects(Supplier<List<Project>> loader) {
+		if(!enabled) {
+			return loader.get();
+		}
+
+		long loadGeneration;
+
+		synchronized(this) {
+			if(Objects.nonNull(allProjects)) {
+				if(!allProjects.isExpired()) {
+					hits.increment();
+					return copyOf(allProjects.value);
+				}
+
+				allProjects = null;
+				evictions.increment();
+			}
+
+			misses.increment();
+			loadGeneration = generation;
+		}
+
+		List<Project> list = List.copyOf(loader.get());
+
+		synchronized(this) {
+			if(enabled && loadGeneration == generation) {
+				allProjects = new Entry<>(copyOf(list), ttlMillis);
+			}
+		}
+
+		return list;
+	}
+
+	/**
+	 * Removes a project and the project list. Call after the project was modified or deleted.
+	 *
+	 * @param projectId The project ID
+	 */
+	public synchronized void invalidate(Integer projectId) {
+		generation++;
+		projects.remove(projectId);
+		allProjects = null;
+	}
+
+	/**
+	 * Removes the project list but keeps cached projects. Call after projects were added.
+	 */
+	public synchronized void invalidateList() {
+		generation++;
+		allProjects = null;
+	}
+
+	/**
+	 * Removes every entry.
+	 */
+	public synchronized void invalidateAll() {
+		generation++;
+		projects.clear();
+		allProjects = null;
+	}
+
+	/**
+	 * Turns the cache on or off. Turning it off clears it; while off, every call goes to the loader.
+	 *
+	 * @param enabled {@code true} to cache
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+
+		if(!enabled) {
+			invalidateAll();
+		}
+	}
+
+	/**
+	 * @return {@code true} if the cache is on
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @return The current counters
+	 */
+	public synchronized Stats getStats() {
+		return new Stats(projects.size(), hits.sum(), misses.sum(), evictions.sum(),
+				revalidations.sum());
+	}
+
+	private static List<Project> copyOf(List<Project> projects) {
+		return projects.stream().map(ProjectCache::copyOf).toList();
+	}
+
+	/*
+	 * Copies the details and child rows. Categories are immutable and shared.
+	 */
+	private static Project copyOf(Project project) {
+		if(Objects.isNull(project)) {
+			return null;
+		}
+
+		Project copy = new Project();
+
+		copy.setProjectId(project.getProjectId());
+		copy.setProjectName(project.getProjectName());
+		copy.setEstimatedHours(project.getEstimatedHours());
+		copy.setActualHours(project.getActualHours());
+		copy.setDifficulty(project.getDifficulty());
+		copy.setNotes(project.getNotes());
+		copy.setVersion(project.getVersion());
+		copy.clearChanges();
+
+		for(Material material : project.getMaterials()) {
+			Material materialCopy = new Material();
+
+			materialCopy.setMaterialId(material.getMaterialId());
+			materialCopy.setProjectId(material.getProjectId());
+			materialCopy.setMaterialName(material.getMaterialName());
+			materialCopy.setNumRequired(material.getNumRequired());
+			materialCopy.setCost(material.getCost());
+			copy.getMaterials().add(materialCopy);
+		}
+
+		for(Step step : project.getSteps()) {
+			Step stepCopy = new Step();
+
+			stepCopy.setStepId(step.getStepId());
+			stepCopy.setProjectId(step.getProjectId());
+			stepCopy.setStepText(step.getStepText());
+			stepCopy.setStepOrder(step.getStepOrder());
+			copy.getSteps().add(stepCopy);
+		}
+
+		copy.getCategories().addAll(project.getCategories());
+		return copy;
+	}
+
+	private void evictOverflow() {
+		Iterator<Entry<Project>> it = projects.values().iterator();
+
+		while(projects.size() > maxSize && it.hasNext()) {
+			it.next();
+			it.remove();
+			evictions.increment();
+		}
+	}
+
+	/**
+	 * Cache counters.
+	 *
+	 * @param size Projects currently cached
+	 * @param hits Lookups served from the cache
+	 * @param misses Lookups that went to the database
+	 * @param evictions Entries dropped because the cache was full or the entry expired
+	 * @param revalidations Expired projects kept because their version was still current
+	 */
+	public record Stats(int size, long hits, long misses, long evictions, long revalidations) {
+
+		/**
+		 * @return The fraction of lookups served from the cache
+		 */
+		public double hitRate() {
+			long lookups = hits + misses;
+			return lookups == 0 ? 0 : (double)hits / lookups;
+		}
+	}
+
+	private static class Entry<V> {
+		private final V value;
+		private final long expiresAt;
+
+		private Entry(V value, long ttlMillis) {
+			this.value = value;
+			this.expiresAt = System.currentTimeMillis() + ttlMillis;
+		}
+
+		private boolean isExpired() {
+			return System.currentTimeMillis() > expiresAt;
+		}
+	}
+}
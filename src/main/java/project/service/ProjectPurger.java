@@ -0,0 +1,184 @@
+package project.service;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import project.dao.ProjectDao;
+import project.dao.PurgeChunk;
+import project.exception.DbException;
+
+/**
+ * Background worker that purges hidden projects for {@link ProjectService}. Projects are purged
+ * one at a time, oldest request first, by repeated {@link ProjectDao#purgeChunk(Integer, int)}
+ * calls with a pause between chunks, so each transaction holds its locks only briefly and other
+ * writers can get in between.
+ *
+ * Nothing is kept only in memory: a hidden project stays hidden until its last row is deleted, so
+ * purges cut short by a crash or shutdown are finished by submitting the hidden projects again
+ * (see {@link ProjectService#resumePurges()}). A chunk that fails is retried after a delay and
+ * counted in the progress.
+ */
+public class ProjectPurger implements AutoCloseable {
+	private static final long RETRY_DELAY_MILLIS = 5_000;
+	private static final long CLOSE_TIMEOUT_MILLIS = 10_000;
+
+	private final ProjectDao projectDao;
+	private final int chunkRows;
+	private final long pauseMillis;
+
+	private final Set<Integer> queue = new LinkedHashSet<>();
+	private final ScheduledExecutorService worker;
+	private boolean scheduled;
+	private boolean closed;
+
+	private volatile Integer currentProjectId;
+	private volatile long currentProjectRows;
+	private final LongAdder projectsPurged = new LongAdder();
+	private final LongAdder rowsDeleted = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private volatile String lastError;
+
+	/**
+	 * @param projectDao The DAO used to delete
+	 * @param chunkRows The most child rows deleted per transaction
+	 * @param pauseMillis The pause between chunks
+	 */
+	public ProjectPurger(ProjectDao projectDao, int chunkRows, long pauseMillis) {
+		if(chunkRows < 1 || pauseMillis < 0) {
+			throw new IllegalArgumentException(
+					"Invalid purge settings: chunkRows=" + chunkRows + ", pauseMillis=" + pauseMillis);
+		}
+
+		this.projectDao = projectDao;
+		this.chunkRows = chunkRows;
+		this.pauseMillis = pauseMillis;
+		this.worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "project-purge");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Queues hidden projects for purging. Projects already queued are not queued twice.
+	 *
+	 * @param projectIds Projects hidden by {@link ProjectDao#requestPurge(Collection)}
+	 */
+	public synchronized void submit(Collection<Integer> projectIds) {
+		if(closed) {
+			return;
+		}
+
+		queue.addAll(projectIds);
+
+		if(!scheduled && !queue.isEmpty()) {
+			scheduled = true;
+			worker.execute(this::purgeNextChunk);
+		}
+	}
+
+	/**
+	 * Stops purging after the chunk in progress. Queued projects stay hidden and can be resumed
+	 * later.
+	 */
+	@Override
+	public void close() {
+		synchronized(this) {
+			closed = true;
+		}
+
+		worker.shutdownNow();
+
+		try {
+			worker.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return The purge progress
+	 */
+	public synchronized Progress getProgress() {
+		return new Progress(queue.size(), currentProjectId, currentProjectRows, projectsPurged.sum(),
+				rowsDeleted.sum(), failures.sum(), lastError);
+	}
+
+	/*
+	 * Deletes one chunk of the oldest queued project, then schedules the next chunk.
+	 */
+	private void purgeNextChunk() {
+		Integer projectId;
+
+		synchronized(this) {
+			projectId = queue.isEmpty() || closed ? null : queue.iterator().next();
+
+			if(Objects.isNull(projectId)) {
+				scheduled = false;
+				currentProjectId = null;
+				return;
+			}
+		}
+
+		if(!projectId.equals(currentProjectId)) {
+			currentProjectId = projectId;
+			currentProjectRows = 0;
+		}
+
+		long delay = pauseMillis;
+
+		try {
+			PurgeChunk chunk = projectDao.purgeChunk(projectId, chunkRows);
+
+			if(!chunk.isFinished()) {
+				rowsDeleted.add(chunk.rowsDeleted());
+				currentProjectRows += chunk.rowsDeleted();
+			}
+			else {
+				synchronized(this) {
+					queue.remove(projectId);
+				}
+
+				/* IDs that were never hidden or are already gone are dropped without counting. */
+				if(chunk.projectDeleted()) {
+					projectsPurged.increment();
+				}
+			}
+		}
+		catch(DbException e) {
+			failures.increment();
+			lastError = "Purge of project " + projectId + " failed: " + e.getMessage();
+			delay = RETRY_DELAY_MILLIS;
+		}
+
+		synchronized(this) {
+			if(closed) {
+				scheduled = false;
+				return;
+			}
+
+			worker.schedule(this::purgeNextChunk, delay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Purge progress.
+	 *
+	 * @param queuedProjects Projects waiting to be purged, including the current one
+	 * @param currentProjectId The project being purged, or null when idle
+	 * @param currentProjectRows Child rows deleted so far from the current project
+	 * @param projectsPurged Projects completely deleted
+	 * @param rowsDeleted Child rows deleted
+	 * @param failures Chunks that failed and were retried
+	 * @param lastError The message of the last failure, or null
+	 */
+	public record Progress(int queuedProjects, Integer currentProjectId, long currentProjectRows,
+			long projectsPurged, long rowsDeleted, long failures, String lastError) {
+	}
+}
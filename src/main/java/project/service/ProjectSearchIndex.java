@@ -0,0 +1,443 @@
+package project.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import project.dao.ProjectDao;
+import project.entity.Category;
+import project.entity.Material;
+import project.entity.Project;
+import project.entity.Step;
+
+/**
+ * An in-memory inverted index for type-ahead project search, used by {@link ProjectService}. It
+ * maps each lower-case word of a project's name, notes, material names, step text and category
+ * names to a sorted int[] posting list of project IDs, so a lookup allocates no boxed integers and
+ * a posting list costs four bytes per project.
+ *
+ * Every query word matches as a prefix ("cab" matches "cabinet") and all words must match. Words
+ * are runs of letters and digits. The index is built from a streamed scan of the project table
+ * with the child rows fetched in batches, and is then kept current by the service's write
+ * methods. Changes made to the database by other processes are not seen until the next
+ * {@link #rebuild(ProjectDao)}.
+ */
+public class ProjectSearchIndex {
+	private static final int BUILD_BATCH_SIZE = 500;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private Postings postings = new Postings();
+	private List<Consumer<Postings>> replay;
+
+	/**
+	 * Rebuilds the index from the database. Queries are answered from the old index until the new
+	 * one is ready, and changes made through the index during the rebuild are replayed onto it.
+	 *
+	 * @param projectDao The DAO to read projects with
+	 * @return The number of projects indexed
+	 */
+	public synchronized int rebuild(ProjectDao projectDao) {
+		lock.writeLock().lock();
+
+		try {
+			replay = new ArrayList<>();
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+
+		Postings fresh = new Postings();
+
+		try {
+			List<Integer> batch = new ArrayList<>(BUILD_BATCH_SIZE);
+
+			try(Stream<Project> projects = projectDao.streamAllProjects()) {
+				projects.forEach(project -> {
+					batch.add(project.getProjectId());
+
+					if(batch.size() == BUILD_BATCH_SIZE) {
+						projectDao.fetchProjectsById(batch).forEach(fresh::index);
+						batch.clear();
+					}
+				});
+			}
+
+			projectDao.fetchProjectsById(batch).forEach(fresh::index);
+
+			lock.writeLock().lock();
+
+			try {
+				replay.forEach(change -> change.accept(fresh));
+				postings = fresh;
+				return fresh.projectTerms.size();
+			}
+			finally {
+				lock.writeLock().unlock();
+			}
+		}
+		finally {
+			lock.writeLock().lock();
+			replay = null;
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds or replaces a project with its materials, steps and categories.
+	 *
+	 * @param project The project
+	 */
+	public void put(Project project) {
+		Integer projectId = project.getProjectId();
+		ProjectTerms terms = new ProjectTerms(nameTerms(project), notesTerms(project),
+				childTerms(project));
+
+		change(target -> target.update(projectId, terms));
+	}
+
+	/**
+	 * Replaces the indexed name and notes of a project, keeping its child rows' words. Projects
+	 * that are not indexed are ignored.
+	 *
+	 * @param project The project with modified details
+	 */
+	public void putDetails(Project project) {
+		Integer projectId = project.getProjectId();
+		String[] nameTerms = nameTerms(project);
+		String[] notesTerms = notesTerms(project);
+
+		change(target -> target.indexDetails(projectId, nameTerms, notesTerms));
+	}
+
+	/**
+	 * Replaces the indexed words of the given columns only, for a partial update that set just
+	 * those columns on the project. Columns other than the name and notes are not indexed and are
+	 * ignored. Projects that are not indexed are ignored.
+	 *
+	 * @param project The project with the modified columns set
+	 * @param columns The modified columns
+	 */
+	public void putDetails(Project project, Set<Project.Column> columns) {
+		Integer projectId = project.getProjectId();
+		String[] nameTerms =
+				columns.contains(Project.Column.PROJECT_NAME) ? nameTerms(project) : null;
+		String[] notesTerms = columns.contains(Project.Column.NOTES) ? notesTerms(project) : null;
+
+		if(Objects.nonNull(nameTerms) || Objects.nonNull(notesTerms)) {
+			change(target -> target.indexDetails(projectId, nameTerms, notesTerms));
+		}
+	}
+
+	/**
+	 * Removes a project.
+	 *
+	 * @param projectId The project ID
+	 */
+	public void remove(Integer projectId) {
+		change(target -> target.remove(projectId));
+	}
+
+	/**
+	 * Finds the projects that match every word of the query, each as a prefix.
+	 *
+	 * @param query The words, e.g. "oak cab"
+	 * @param limit The maximum number of IDs returned
+	 * @return Matching project IDs in ascending order. A query without words matches nothing.
+	 */
+	public int[] search(String query, int limit) {
+		String[] words = tokenize(query).distinct().toArray(String[]::new);
+
+		if(words.length == 0 || limit < 1) {
+			return new int[0];
+		}
+
+		lock.readLock().lock();
+
+		try {
+			int[][] matches = new int[words.length][];
+
+			for(int i = 0; i < words.length; i++) {
+				matches[i] = postings.prefixMatches(words[i]);
+			}
+
+			/* Intersect the shortest lists first so the running result stays small. */
+			Arrays.sort(matches, (a, b) -> Integer.compare(a.length, b.length));
+
+			int[] result = matches[0];
+
+			for(int i = 1; i < matches.length && result.length > 0; i++) {
+				result = intersect(result, matches[i]);
+			}
+
+			return result.length <= limit ? result : Arrays.copyOf(result, limit);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return The number of indexed projects and distinct words
+	 */
+	public Stats getStats() {
+		lock.readLock().lock();
+
+		try {
+			return new Stats(postings.projectTerms.size(), postings.terms.size());
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void change(Consumer<Postings> change) {
+		lock.writeLock().lock();
+
+		try {
+			change.accept(postings);
+
+			if(Objects.nonNull(replay)) {
+				replay.add(change);
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private static String[] nameTerms(Project project) {
+		return terms(Stream.of(project.getProjectName()));
+	}
+
+	private static String[] notesTerms(Project project) {
+		return terms(Stream.of(project.getNotes()));
+	}
+
+	private static String[] childTerms(Project project) {
+		Stream<String> materials = project.getMaterials().stream().map(Material::getMaterialName);
+		Stream<String> steps = project.getSteps().stream().map(Step::getStepText);
+		Stream<String> categories =
+				project.getCategories().stream().map(Category::getCategoryName);
+
+		return terms(Stream.concat(materials, Stream.concat(steps, categories)));
+	}
+
+	private static String[] terms(Stream<String> texts) {
+		return texts.flatMap(ProjectSearchIndex::tokenize).distinct().toArray(String[]::new);
+	}
+
+	private static Stream<String> tokenize(String text) {
+		if(Objects.isNull(text)) {
+			return Stream.empty();
+		}
+
+		String lower = text.toLowerCase(Locale.ROOT);
+		Stream.Builder<String> words = Stream.builder();
+		int start = -1;
+
+		for(int i = 0; i <= lower.length(); i++) {
+			boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+
+			if(wordChar && start < 0) {
+				start = i;
+			}
+			else if(!wordChar && start >= 0) {
+				words.add(lower.substring(start, i));
+				start = -1;
+			}
+		}
+
+		return words.build();
+	}
+
+	private static int[] intersect(int[] a, int[] b) {
+		int[] result = new int[Math.min(a.length, b.length)];
+		int count = 0;
+
+		for(int i = 0, j = 0; i < a.length && j < b.length;) {
+			if(a[i] < b[j]) {
+				i++;
+			}
+			else if(a[i] > b[j]) {
+				j++;
+			}
+			else {
+				result[count++] = a[i];
+				i++;
+				j++;
+			}
+		}
+
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Index size.
+	 *
+	 * @param projects Indexed projects
+	 * @param terms Distinct words
+	 */
+	public record Stats(int projects, int terms) {
+	}
+
+	/*
+	 * The index data: word -> posting list, plus each project's words so they can be removed.
+	 * Guarded by the enclosing lock once published.
+	 */
+	private static class Postings {
+		private final NavigableMap<String, PostingList> terms = new TreeMap<>();
+		private final Map<Integer, ProjectTerms> projectTerms = new HashMap<>();
+
+		void index(Project project) {
+			update(project.getProjectId(), new ProjectTerms(nameTerms(project),
+					notesTerms(project), childTerms(project)));
+		}
+
+		/*
+		 * Null name or notes terms keep the indexed ones.
+		 */
+		void indexDetails(Integer projectId, String[] nameTerms, String[] notesTerms) {
+			ProjectTerms old = projectTerms.get(projectId);
+
+			/* A project that is not indexed may not exist; it is picked up by the next rebuild. */
+			if(Objects.nonNull(old)) {
+				update(projectId,
+						new ProjectTerms(Objects.requireNonNullElse(nameTerms, old.nameTerms()),
+								Objects.requireNonNullElse(notesTerms, old.notesTerms()),
+								old.childTerms()));
+			}
+		}
+
+		void remove(Integer projectId) {
+			ProjectTerms old = projectTerms.remove(projectId);
+
+			if(Objects.nonNull(old)) {
+				for(String term : old.all()) {
+					removePosting(term, projectId);
+				}
+			}
+		}
+
+		int[] prefixMatches(String prefix) {
+			Map<String, PostingList> matches =
+					terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+
+			if(matches.size() == 1) {
+				return matches.values().iterator().next().toArray();
+			}
+
+			int total = 0;
+
+			for(PostingList list : matches.values()) {
+				total += list.size;
+			}
+
+			int[] ids = new int[total];
+			int offset = 0;
+
+			for(PostingList list : matches.values()) {
+				System.arraycopy(list.ids, 0, ids, offset, list.size);
+				offset += list.size;
+			}
+
+			Arrays.sort(ids);
+
+			int unique = 0;
+
+			for(int i = 0; i < ids.length; i++) {
+				if(i == 0 || ids[i] != ids[i - 1]) {
+					ids[unique++] = ids[i];
+				}
+			}
+
+			return Arrays.copyOf(ids, unique);
+		}
+
+		void update(Integer projectId, ProjectTerms updated) {
+			ProjectTerms old = projectTerms.put(projectId, updated);
+			TreeSet<String> oldTerms = Objects.isNull(old) ? new TreeSet<>() : old.all();
+			TreeSet<String> newTerms = updated.all();
+
+			for(String term : oldTerms) {
+				if(!newTerms.contains(term)) {
+					removePosting(term, projectId);
+				}
+			}
+
+			for(String term : newTerms) {
+				if(!oldTerms.contains(term)) {
+					terms.computeIfAbsent(term, key -> new PostingList()).add(projectId);
+				}
+			}
+		}
+
+		private void removePosting(String term, int projectId) {
+			PostingList list = terms.get(term);
+
+			if(Objects.nonNull(list) && list.remove(projectId) && list.size == 0) {
+				terms.remove(term);
+			}
+		}
+	}
+
+	private record ProjectTerms(String[] nameTerms, String[] notesTerms, String[] childTerms) {
+		TreeSet<String> all() {
+			TreeSet<String> all = new TreeSet<>(Arrays.asList(nameTerms));
+			all.addAll(Arrays.asList(notesTerms));
+			all.addAll(Arrays.asList(childTerms));
+			return all;
+		}
+	}
+
+	/*
+	 * A sorted, growable int[] of project IDs. IDs usually arrive in ascending order, which appends.
+	 */
+	private static class PostingList {
+		private int[] ids = new int[4];
+		private int size;
+
+		void add(int id) {
+			int index = Arrays.binarySearch(ids, 0, size, id);
+
+			if(index >= 0) {
+				return;
+			}
+
+			int insertAt = -index - 1;
+
+			if(size == ids.length) {
+				ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+			}
+
+			System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+			ids[insertAt] = id;
+			size++;
+		}
+
+		boolean remove(int id) {
+			int index = Arrays.binarySearch(ids, 0, size, id);
+
+			if(index < 0) {
+				return false;
+			}
+
+			System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+			size--;
+			return true;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(ids, size);
+		}
+	}
+}
@@ -1,69 +1,663 @@
 package project.service;
 
 
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;          //using list data structures 
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+import project.dao.CategoryHoursSummary;
+import project.dao.DbConnection;
+import project.dao.DifficultyCount;
 import project.dao.ProjectDao;  //data access object that interacts with the project table
+import project.dao.ProjectCostSummary;
+import project.dao.ProjectLoadMode;
+import project.dao.ProjectSearchResult;
 import project.entity.Project;  //this is project entity class
 import project.exception.DbException;
+import project.exception.OptimisticLockException;
 
 
 //This projects service represents the service layer of the Projects
 
 public class ProjectService {
+    private static final int CACHE_MAX_SIZE = 1000;
+    private static final long CACHE_TTL_MILLIS = 60_000;
+
     private ProjectDao projectDao = new ProjectDao(); //accessing database operations
-    
+    private ProjectCache projectCache =
+        new ProjectCache(CACHE_MAX_SIZE, CACHE_TTL_MILLIS, projectDao::fetchProjectVersion);
+    private volatile ProjectWriteBehind writeBehind;
+    private volatile ProjectSearchIndex searchIndex;
+    private volatile boolean searchIndexBuilt;
+    private boolean shutdownTaskAdded;
+
+    /*
+     * One purge worker for the whole application, started by the first purge or resumePurges()
+     * call (holder idiom), so creating a service starts no thread and touches no database.
+     */
+    private static volatile boolean purgerStarted;
+
+    private static class PurgerHolder {
+        private static final int PURGE_CHUNK_ROWS = 1000;
+        private static final long PURGE_PAUSE_MILLIS = 20;
+        private static final ProjectPurger PURGER = startPurger();
+
+        private static ProjectPurger startPurger() {
+          ProjectPurger purger =
+              new ProjectPurger(new ProjectDao(), PURGE_CHUNK_ROWS, PURGE_PAUSE_MILLIS);
+
+          DbConnection.addShutdownTask(purger::close);
+          purgerStarted = true;
+          return purger;
+        }
+      }
 
 
     //this method adds a project by delegating to my ProjectDao
     public Project addProject(Project project) {
-    	return projectDao.insertProject(project);   //Calls the DAO to insert the project and return it.
-    	
+    	try {
+    		Project added = projectDao.insertProject(project);   //Calls the DAO to insert the project.
+    		indexProject(detailsOnly(added));  //only the details row is inserted
+    		return added;
+    	}
+    	finally {
+    		projectCache.invalidateList();
+    	}
     }
+
+    /**
+     * Builds the in-memory search index used by {@link #findProjectIds(String, int)} from the
+     * database, and keeps it current from then on through this service's write methods. Calling it
+     * again rebuilds the index. Returns the number of projects indexed.
+     */
+    public int enableSearchIndex() {
+        ProjectSearchIndex index = searchIndex;
+
+        if(Objects.isNull(index)) {
+          synchronized(this) {
+            if(Objects.isNull(searchIndex)) {
+              /* Published before the build, so the rebuild replays writes made meanwhile. */
+              searchIndex = new ProjectSearchIndex();
+            }
+
+            index = searchIndex;
+          }
+        }
+
+        int indexed = index.rebuild(projectDao);
+
+        searchIndexBuilt = true;
+        return indexed;
+      }
+
+    /**
+     * Finds projects for type-ahead search with the in-memory index: every word of the query must
+     * prefix-match a word of the project's name, notes, materials, steps or categories. Returns the
+     * IDs in ascending order. Call {@link #enableSearchIndex()} first.
+     *
+     * @throws IllegalStateException Thrown if the index has not been built.
+     */
+    public int[] findProjectIds(String query, int limit) {
+        ProjectSearchIndex index = searchIndex;
+
+        if(Objects.isNull(index) || !searchIndexBuilt) {
+          throw new IllegalStateException("The search index has not been built.");
+        }
+
+        return index.search(query, limit);
+      }
+
+    /**
+     * Turns on write-behind for {@link #modifyProjectDetails(Project)}: updates return at once and
+     * are coalesced per project, then written as one batched UPDATE within maxDelayMillis. Reads
+     * through this service see the buffered details. When more than maxPendingProjects projects are
+     * pending, further updates are written synchronously. Pending updates are written when
+     * write-behind is turned off and when the JVM shuts down. Errors in background writes, such as
+     * a project that does not exist, are counted in {@link #getWriteBehindStats()} rather than
+     * thrown to the caller.
+     */
+    public synchronized void enableWriteBehind(long maxDelayMillis, int maxPendingProjects) {
+        disableWriteBehind();
+
+        writeBehind = new ProjectWriteBehind(projectDao, maxDelayMillis, maxPendingProjects,
+            this::invalidateWritten);
+        addShutdownTask();
+      }
+
+    /**
+     * Writes pending updates and returns {@link #modifyProjectDetails(Project)} to synchronous
+     * writes.
+     */
+    public synchronized void disableWriteBehind() {
+        ProjectWriteBehind buffer = writeBehind;
+
+        if(Objects.nonNull(buffer)) {
+          writeBehind = null;
+          buffer.close();
+        }
+      }
+
+    /**
+     * Writes pending write-behind updates now. Does nothing when write-behind is off.
+     */
+    public void flushPendingUpdates() {
+        ProjectWriteBehind buffer = writeBehind;
+
+        if(Objects.nonNull(buffer)) {
+          buffer.flush();
+        }
+      }
+
+    /**
+     * Returns the write-behind counters, or null when write-behind is off.
+     */
+    public ProjectWriteBehind.Stats getWriteBehindStats() {
+        ProjectWriteBehind buffer = writeBehind;
+        return Objects.isNull(buffer) ? null : buffer.getStats();
+      }
+
+    /**
+     * Turns the project cache in front of {@link #fetchProjectById(Integer)} and
+     * {@link #fetchAllProjects()} on or off. It is on by default. Expired projects are kept if a
+     * version check shows they are still current.
+     */
+    public void setCacheEnabled(boolean enabled) {
+        projectCache.setEnabled(enabled);
+      }
+
+    /**
+     * Returns the project cache hit, miss and eviction counters.
+     */
+    public ProjectCache.Stats getCacheStats() {
+        return projectCache.getStats();
+      }
     
+    /**
+     * This method calls the project DAO to insert many projects, with their materials, steps and
+     * category links, using batched inserts committed in chunks. The generated keys are set on the
+     * given objects.
+     */
+    public List<Project> addProjects(Collection<Project> projects) {
+        try {
+          List<Project> added = projectDao.insertProjects(projects);
+          added.forEach(this::indexProject);
+          return added;
+        }
+        finally {
+          projectCache.invalidateList();
+        }
+      }
+
+    /**
+     * This method works like {@link #addProjects(Collection)} for a stream of projects, such as a
+     * feed read from a file, and returns the number of projects inserted. The projects are not
+     * kept; each committed chunk is added to the search index, if enabled, as it is inserted.
+     */
+    public int addProjects(Stream<Project> projects) {
+        try {
+          return projectDao.insertProjects(projects, chunk -> chunk.forEach(this::indexProject));
+        }
+        finally {
+          projectCache.invalidateList();
+        }
+      }
+
     /**
      * This method calls the project DAO to retrieve all project rows without accompanying details
-     * (materials, steps and categories).
+     * (materials, steps and categories). The list is cached and cannot be modified.
      */
     public List<Project> fetchAllProjects() {
-        return projectDao.fetchAllProjects();
+        return projectCache.getAllProjects(() -> overlayPending(projectDao.fetchAllProjects()));
       }
     
+    /**
+     * This method calls the project DAO to retrieve one page of project summaries (no notes and no
+     * materials, steps or categories), ordered by project name. Pass the name and ID of the last
+     * project of the previous page to get the next page, or nulls to get the first page.
+     */
+    public List<Project> fetchProjectPage(String afterProjectName, Integer afterProjectId,
+        int pageSize) {
+        return projectDao.fetchProjectPage(afterProjectName, afterProjectId, pageSize);
+      }
+
+    /**
+     * This method calls the project DAO to search project names, notes and step text. Results are
+     * ranked by relevance and returned one page at a time (page numbers start at zero). They are
+     * not cached.
+     */
+    public List<ProjectSearchResult> searchProjects(String query, int pageNumber, int pageSize) {
+        return projectDao.searchProjects(query, pageNumber, pageSize);
+      }
+
+    /**
+     * This method calls the project DAO to total the material cost (num_required * cost) of every
+     * project. The totals are computed by the database, so no materials are loaded.
+     */
+    public List<ProjectCostSummary> fetchProjectCosts() {
+        return projectDao.fetchProjectCosts();
+      }
+
+    /**
+     * This method works like {@link #fetchProjectCosts()} for one project. If the project ID is
+     * invalid, it throws an exception.
+     */
+    public ProjectCostSummary fetchProjectCost(Integer projectId) {
+        return projectDao.fetchProjectCost(projectId).orElseThrow(() -> new NoSuchElementException(
+            "Project with project ID=" + projectId + " does not exist."));
+      }
+
+    /**
+     * This method calls the project DAO to sum estimated and actual hours per category.
+     */
+    public List<CategoryHoursSummary> fetchCategoryHours() {
+        return projectDao.fetchCategoryHours();
+      }
+
+    /**
+     * This method calls the project DAO to count projects per difficulty.
+     */
+    public List<DifficultyCount> fetchDifficultyHistogram() {
+        return projectDao.fetchDifficultyHistogram();
+      }
+
+    /**
+     * This method calls the project DAO to stream all project rows without accompanying details.
+     * Rows are read from the database as the stream is consumed. The stream holds a database
+     * connection until it is exhausted or closed, so callers should close it.
+     */
+    public Stream<Project> streamAllProjects() {
+        return projectDao.streamAllProjects();
+      }
+
     /**
      * This method calls the project DAO to get all project details, including materials, steps, and
-     * categories. If the project ID is invalid, it throws an exception.
+     * categories. If the project ID is invalid, it throws an exception. Projects are served from
+     * the project cache when possible.
      */
     public Project fetchProjectById(Integer projectId) {
-        return projectDao.fetchProjectById(projectId).orElseThrow(() -> new NoSuchElementException(
-            "Project with project ID=" + projectId + " does not exist."));
+        return projectCache.getProject(projectId,
+            () -> overlayPending(projectDao.fetchProjectById(projectId).orElseThrow(
+                () -> new NoSuchElementException(
+                    "Project with project ID=" + projectId + " does not exist."))));
+      }
+
+    /**
+     * This method works like {@link #fetchProjectById(Integer)} but lets the caller choose how the
+     * project and its details are loaded, e.g. in a single round trip to the database.
+     */
+    public Project fetchProjectById(Integer projectId, ProjectLoadMode mode) {
+        return projectCache.getProject(projectId,
+            () -> overlayPending(projectDao.fetchProjectById(projectId, mode).orElseThrow(
+                () -> new NoSuchElementException(
+                    "Project with project ID=" + projectId + " does not exist."))));
+      }
+
+    /**
+     * This method calls the project DAO to get the full details of many projects at once. Child rows
+     * are loaded in batches rather than with one set of queries per project. IDs that do not exist
+     * are skipped.
+     */
+    public List<Project> fetchProjectsById(Collection<Integer> projectIds) {
+        return overlayPending(projectDao.fetchProjectsById(projectIds));
       }
+
     /**
      * This method calls the project DAO to modify the project details row in the project table. The
      * DAO will return {@code true} if the row was modified. It returns {@code false} if the row was
      * not modified (i.e., if an invalid project ID was specified). In this latter case, a DbException
-     * is thrown.
+     * is thrown. With write-behind on, the update is usually buffered instead; see
+     * {@link #enableWriteBehind(long, int)}.
      * 
      * @param project The Project object with modified details.
      * @throws DbException Thrown if an invalid project ID is specified.
      */
     public void modifyProjectDetails(Project project) {
-      if(!projectDao.modifyProjectDetails(project)) {
-        throw new DbException("Project with ID=" + project.getProjectId() + " does not exist.");
+      ProjectWriteBehind buffer = writeBehind;
+
+      if(Objects.isNull(buffer)) {
+        modifyProjectDetailsNow(project);
+      }
+      else if(buffer.submit(project)) {
+        projectCache.invalidate(project.getProjectId());
+        indexProjectDetails(project);
+      }
+      else {
+        buffer.writeThrough(project.getProjectId(), () -> modifyProjectDetailsNow(project));
+      }
+    }
+
+    /**
+     * This method calls the project DAO to modify the project details only if the project is still
+     * at the version the caller read, and returns the new version. The new version is also set on
+     * the given project, so the caller does not need to read the project again. The update is
+     * always written synchronously; a buffered write-behind update of the same project is written
+     * first, so it counts as a change made since the caller's version.
+     * 
+     * @param project The Project object with modified details.
+     * @param expectedVersion The version of the project the details were based on.
+     * @return The new version.
+     * @throws OptimisticLockException Thrown if the project was changed since expectedVersion.
+     * @throws DbException Thrown if an invalid project ID is specified.
+     */
+    public int modifyProjectDetails(Project project, int expectedVersion) {
+      ProjectWriteBehind buffer = writeBehind;
+
+      if(Objects.isNull(buffer)) {
+        return modifyProjectDetailsNow(project, expectedVersion);
+      }
+
+      return buffer.writeThroughAfterPending(project.getProjectId(),
+          () -> modifyProjectDetailsNow(project, expectedVersion));
+    }
+
+    private int modifyProjectDetailsNow(Project project, int expectedVersion) {
+      try {
+        int version = projectDao.modifyProjectDetails(project, expectedVersion);
+
+        indexProjectDetails(project);
+        return version;
+      }
+      finally {
+        projectCache.invalidate(project.getProjectId());
+      }
+    }
+
+    /**
+     * This method calls the project DAO to write only the details changed on the project since it
+     * was read (see {@link Project#getChangedColumns()}). If nothing changed, nothing is written
+     * and {@code false} is returned. If the project has a version, the update succeeds only if that
+     * is still the current version, and the new version is set on the project. Like
+     * {@link #modifyProjectDetails(Project, int)}, it writes synchronously after any buffered
+     * write-behind update of the same project.
+     * 
+     * @param project The Project object with modified details.
+     * @return {@code true} if the project was written.
+     * @throws OptimisticLockException Thrown if the project was changed since its version was read.
+     * @throws DbException Thrown if an invalid project ID is specified.
+     */
+    public boolean modifyChangedProjectDetails(Project project) {
+      if(!project.hasChanges()) {
+        return false;
+      }
+
+      /* Saving clears the changes, so note which columns to reindex first. */
+      Set<Project.Column> changed = EnumSet.copyOf(project.getChangedColumns());
+      ProjectWriteBehind buffer = writeBehind;
+
+      if(Objects.isNull(buffer)) {
+        return modifyChangedProjectDetailsNow(project, changed);
+      }
+
+      return buffer.writeThroughAfterPending(project.getProjectId(),
+          () -> modifyChangedProjectDetailsNow(project, changed));
+    }
+
+    private boolean modifyChangedProjectDetailsNow(Project project, Set<Project.Column> changed) {
+      try {
+        projectDao.modifyChangedProjectDetails(project);
+        indexProjectColumns(project, changed);
+        return true;
+      }
+      finally {
+        projectCache.invalidate(project.getProjectId());
+      }
+    }
+
+    private void modifyProjectDetailsNow(Project project) {
+      try {
+        if(!projectDao.modifyProjectDetails(project)) {
+          throw new DbException("Project with ID=" + project.getProjectId() + " does not exist.");
+        }
+
+        indexProjectDetails(project);
+      }
+      finally {
+        projectCache.invalidate(project.getProjectId());
+      }
+    }
+
+    /**
+     * This method calls the project DAO to save a whole project graph in one transaction: the
+     * project details, materials, steps and category links, with one batched INSERT per child
+     * table. A project without an ID is added; otherwise its details are updated and its child rows
+     * are replaced by the ones on the project. Any buffered write-behind update of the project is
+     * discarded, since the saved details supersede it. If the project has a version, the save
+     * succeeds only if that is still the current version; the new version is set on the project.
+     * 
+     * @param project The project with its materials, steps and categories.
+     * @return The saved project, with generated keys set.
+     * @throws OptimisticLockException Thrown if the project was changed since its version was read.
+     * @throws DbException Thrown if the project ID does not exist.
+     */
+    public Project saveProjectGraph(Project project) {
+      ProjectWriteBehind buffer = writeBehind;
+
+      if(Objects.isNull(project.getProjectId())) {
+        try {
+          projectDao.saveProjectGraph(project);
+        }
+        finally {
+          projectCache.invalidateList();
+        }
+      }
+      else if(Objects.isNull(buffer)) {
+        saveProjectGraphNow(project);
+      }
+      else {
+        buffer.writeThrough(project.getProjectId(), () -> saveProjectGraphNow(project));
+      }
+
+      indexProject(project);
+      return project;
+    }
+
+    private void saveProjectGraphNow(Project project) {
+      try {
+        projectDao.saveProjectGraph(project);
+      }
+      finally {
+        projectCache.invalidate(project.getProjectId());
       }
     }
 
     /**
      * This method calls the project DAO to delete the project with the given project ID. If an
-     * invalid project ID is given, an exception is thrown.
+     * invalid project ID is given, an exception is thrown. The delete runs in one transaction; use
+     * {@link #purgeProject(Integer)} for very large projects.
      * 
      * @param projectId The project ID of the project to delete.
      * @throws DbException Thrown if the project ID does not exist.
      */
     public void deleteProject(Integer projectId) {
-      if(!projectDao.deleteProject(projectId)) {
+      ProjectWriteBehind buffer = writeBehind;
+
+      if(Objects.isNull(buffer)) {
+        deleteProjectNow(projectId);
+      }
+      else {
+        /* Drops any buffered update so that it is not written after the delete. */
+        buffer.writeThrough(projectId, () -> deleteProjectNow(projectId));
+      }
+    }
+
+    /**
+     * Deletes a project in the background. The project is hidden from every read and write at
+     * once, then its materials, steps and category links are deleted a chunk at a time in short
+     * transactions, so deleting a very large project does not hold locks for long.
+     *
+     * @param projectId The project ID of the project to purge.
+     * @throws DbException Thrown if the project ID does not exist or is already being purged.
+     */
+    public void purgeProject(Integer projectId) {
+      if(!purgeProjects(List.of(projectId)).isEmpty()) {
         throw new DbException("Project with ID=" + projectId + " does not exist.");
       }
     }
+
+    /**
+     * Deletes many projects in the background, like {@link #purgeProject(Integer)}. Returns the
+     * IDs that were not purged because they do not exist or are already being purged. Use
+     * {@link #getPurgeProgress()} to follow the deletes.
+     */
+    public List<Integer> purgeProjects(Collection<Integer> projectIds) {
+      List<Integer> distinctIds = projectIds.stream().distinct().toList();
+      ProjectWriteBehind buffer = writeBehind;
+
+      if(Objects.nonNull(buffer)) {
+        /* Drops buffered updates; they would fail against hidden projects anyway. */
+        buffer.discard(distinctIds);
+      }
+
+      List<Integer> notPurged;
+
+      try {
+        notPurged = projectDao.requestPurge(distinctIds);
+      }
+      finally {
+        distinctIds.forEach(projectCache::invalidate);
+      }
+
+      Set<Integer> notHidden = new HashSet<>(notPurged);
+      List<Integer> hidden = distinctIds.stream().filter(id -> !notHidden.contains(id)).toList();
+
+      hidden.forEach(this::unindexProject);
+
+      if(!hidden.isEmpty()) {
+        purger().submit(hidden);
+      }
+
+      return notPurged;
+    }
+
+    /**
+     * Queues every project left hidden by purges that a crash or shutdown interrupted. The
+     * application calls this once at startup. Returns the number of projects queued.
+     *
+     * @throws DbException Thrown if the hidden projects cannot be read.
+     */
+    public int resumePurges() {
+      List<Integer> projectIds = projectDao.fetchPurgeRequests();
+
+      if(!projectIds.isEmpty()) {
+        purger().submit(projectIds);
+      }
+
+      return projectIds.size();
+    }
+
+    /**
+     * Returns the background purge progress of the application. All zeros if nothing has been
+     * purged yet; this does not start the purge worker.
+     */
+    public ProjectPurger.Progress getPurgeProgress() {
+      if(!purgerStarted) {
+        return new ProjectPurger.Progress(0, null, 0, 0, 0, 0, null);
+      }
+
+      return purger().getProgress();
+    }
+
+    private static ProjectPurger purger() {
+      return PurgerHolder.PURGER;
+    }
+
+    private void deleteProjectNow(Integer projectId) {
+      try {
+        if(!projectDao.deleteProject(projectId)) {
+          throw new DbException("Project with ID=" + projectId + " does not exist.");
+        }
+
+        unindexProject(projectId);
+      }
+      finally {
+        projectCache.invalidate(projectId);
+      }
+    }
+
+    /*
+     * Registers, once per service, the JVM shutdown work: writing pending write-behind updates.
+     * Call while synchronized on this service.
+     */
+    private void addShutdownTask() {
+      if(!shutdownTaskAdded) {
+        shutdownTaskAdded = true;
+        DbConnection.addShutdownTask(this::disableWriteBehind);
+      }
+    }
+
+    /*
+     * Applies buffered write-behind details to freshly loaded projects.
+     */
+    private Project overlayPending(Project project) {
+      ProjectWriteBehind buffer = writeBehind;
+      return Objects.isNull(buffer) ? project : buffer.overlay(project);
+    }
+
+    private List<Project> overlayPending(List<Project> projects) {
+      ProjectWriteBehind buffer = writeBehind;
+
+      if(Objects.nonNull(buffer)) {
+        projects.forEach(buffer::overlay);
+      }
+
+      return projects;
+    }
+
+    /*
+     * Search index hooks. They do nothing until enableSearchIndex() is called.
+     */
+    private void indexProject(Project project) {
+      ProjectSearchIndex index = searchIndex;
+
+      if(Objects.nonNull(index)) {
+        index.put(project);
+      }
+    }
+
+    /*
+     * A copy with the project's ID, name and notes only, for indexing a project whose child rows
+     * were not saved.
+     */
+    private static Project detailsOnly(Project project) {
+      Project details = new Project();
+
+      details.setProjectId(project.getProjectId());
+      details.setProjectName(project.getProjectName());
+      details.setNotes(project.getNotes());
+      return details;
+    }
+
+    private void indexProjectDetails(Project project) {
+      ProjectSearchIndex index = searchIndex;
+
+      if(Objects.nonNull(index)) {
+        index.putDetails(project);
+      }
+    }
+
+    private void indexProjectColumns(Project project, Set<Project.Column> columns) {
+      ProjectSearchIndex index = searchIndex;
+
+      if(Objects.nonNull(index)) {
+        index.putDetails(project, columns);
+      }
+    }
+
+    private void unindexProject(Integer projectId) {
+      ProjectSearchIndex index = searchIndex;
+
+      if(Objects.nonNull(index)) {
+        index.remove(projectId);
+      }
+    }
+
+    private void invalidateWritten(Collection<Integer> projectIds) {
+      projectIds.forEach(projectCache::invalidate);
+    }
 }  
     
     
@@ -0,0 +1,435 @@
+package project.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import project.dao.ProjectDao;
+import project.entity.Project;
+import project.exception.DbException;
+
+/**
+ * Write-behind buffer for project detail updates, used by {@link ProjectService}. Updates are
+ * coalesced per project ID (the latest details win) and written together as one batched UPDATE
+ * transaction, so a burst of changes to the same project costs one row write.
+ *
+ * Durability is bounded two ways. A change is flushed at most maxDelayMillis after the first
+ * pending change, and at most maxPending projects are ever pending; an update that would exceed
+ * that is written synchronously instead. Pending changes are lost if the JVM dies without running
+ * its shutdown hooks. If a background flush fails, its changes are kept (unless newer ones arrived)
+ * and retried after the next delay.
+ */
+public class ProjectWriteBehind implements AutoCloseable {
+	private final ProjectDao projectDao;
+	private final long maxDelayMillis;
+	private final int maxPending;
+	private final Consumer<Collection<Integer>> onWritten;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final ReentrantLock flushLock = new ReentrantLock();
+	private final Map<Integer, Project> pending = new LinkedHashMap<>();
+	private final ScheduledExecutorService scheduler;
+	private ScheduledFuture<?> scheduledFlush;
+	private boolean closed;
+
+	private final LongAdder submitted = new LongAdder();
+	private final LongAdder coalesced = new LongAdder();
+	private final LongAdder flushes = new LongAdder();
+	private final LongAdder written = new LongAdder();
+	private final LongAdder writtenThrough = new LongAdder();
+	private final LongAdder failedFlushes = new LongAdder();
+	private volatile String lastError;
+
+	/**
+	 * @param projectDao The DAO used to write
+	 * @param maxDelayMillis The longest a change waits before it is flushed
+	 * @param maxPending The most projects with unwritten changes
+	 * @param onWritten Called with the project IDs of every flush, successful or not, so that
+	 *        cached copies can be dropped
+	 */
+	public ProjectWriteBehind(ProjectDao projectDao, long maxDelayMillis, int maxPending,
+			Consumer<Collection<Integer>> onWritten) {
+		if(maxDelayMillis < 1 || maxPending < 1) {
+			throw new IllegalArgumentException("Invalid write-behind settings: maxDelayMillis="
+					+ maxDelayMillis + ", maxPending=" + maxPending);
+		}
+
+		this.projectDao = projectDao;
+		this.maxDelayMillis = maxDelayMillis;
+		this.maxPending = maxPending;
+		this.onWritten = onWritten;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "project-write-behind");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Queues the project's details. The project is copied, so the caller may keep changing it.
+	 *
+	 * @param project The project with modified details
+	 * @return false if the update was not queued because the buffer is full or closed; the caller
+	 *         should then use {@link #writeThrough(Integer, Runnable)}
+	 */
+	public boolean submit(Project project) {
+		Integer projectId = Objects.requireNonNull(project.getProjectId(), "Project ID");
+		boolean full;
+
+		lock.lock();
+
+		try {
+			if(closed || (pending.size() >= maxPending && !pending.containsKey(projectId))) {
+				return false;
+			}
+
+			if(Objects.nonNull(pending.put(projectId, copyDetails(project, new Project())))) {
+				coalesced.increment();
+			}
+
+			submitted.increment();
+			full = pending.size() >= maxPending;
+
+			if(full) {
+				cancelScheduledFlush();
+			}
+			else if(Objects.isNull(scheduledFlush)) {
+				scheduledFlush = scheduler.schedule(this::backgroundFlush, maxDelayMillis,
+						TimeUnit.MILLISECONDS);
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+
+		if(full) {
+			scheduler.execute(this::backgroundFlush);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Runs a synchronous write of one project (an update or a delete), ordered with the flushes:
+	 * any pending change to the project is discarded first, so an older buffered change can never
+	 * overwrite this one.
+	 *
+	 * @param projectId The project ID
+	 * @param write The write
+	 */
+	public void writeThrough(Integer projectId, Runnable write) {
+		flushLock.lock();
+
+		try {
+			lock.lock();
+
+			try {
+				pending.remove(projectId);
+			}
+			finally {
+				lock.unlock();
+			}
+
+			writtenThrough.increment();
+			write.run();
+		}
+		finally {
+			flushLock.unlock();
+		}
+	}
+
+	/**
+	 * Runs a synchronous write of one project that must come after its buffered change, such as a
+	 * version-checked update: the pending change to this project, if any, is written first, and
+	 * both are ordered with the flushes. Pending changes to other projects are left alone, so
+	 * their failures cannot abort this write.
+	 *
+	 * @param <T> The result type
+	 * @param projectId The project ID
+	 * @param write The write
+	 * @return The result of the write
+	 * @throws DbException Thrown if the pending change cannot be written (it stays pending)
+	 */
+	public <T> T writeThroughAfterPending(Integer projectId, Supplier<T> write) {
+		flushLock.lock();
+
+		try {
+			Project change;
+
+			lock.lock();
+
+			try {
+				change = pending.remove(projectId);
+			}
+			finally {
+				lock.unlock();
+			}
+
+			if(Objects.nonNull(change)) {
+				try {
+					/* A missing project is left for the write itself to report. */
+					if(projectDao.modifyProjectDetails(List.of(change)).isEmpty()) {
+						written.increment();
+					}
+
+					flushes.increment();
+				}
+				catch(DbException e) {
+					requeue(List.of(change));
+					throw e;
+				}
+				finally {
+					onWritten.accept(List.of(projectId));
+				}
+			}
+
+			writtenThrough.increment();
+			return write.get();
+		}
+		finally {
+			flushLock.unlock();
+		}
+	}
+
+	/**
+	 * Drops any pending changes to the given projects, waiting for a flush in progress to finish.
+	 * Used before projects are purged, so no buffered update is written to a hidden project.
+	 *
+	 * @param projectIds The project IDs
+	 */
+	public void discard(Collection<Integer> projectIds) {
+		flushLock.lock();
+
+		try {
+			lock.lock();
+
+			try {
+				pending.keySet().removeAll(projectIds);
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+		finally {
+			flushLock.unlock();
+		}
+	}
+
+	/**
+	 * Copies pending details onto a project just read from the database, so that readers see their
+	 * own buffered writes. The project is left with no recorded changes, since it may be cached.
+	 *
+	 * @param project The project. May be null.
+	 * @return The same project
+	 */
+	public Project overlay(Project project) {
+		if(Objects.nonNull(project)) {
+			lock.lock();
+
+			try {
+				Project change = pending.get(project.getProjectId());
+
+				if(Objects.nonNull(change)) {
+					copyDetails(change, project);
+					project.clearChanges();
+				}
+			}
+			finally {
+				lock.unlock();
+			}
+		}
+
+		return project;
+	}
+
+	/**
+	 * Writes all pending changes now.
+	 *
+	 * @throws DbException Thrown if the write fails (the changes stay pending) or if some of the
+	 *         projects do not exist (those changes are dropped)
+	 */
+	public void flush() {
+		flushLock.lock();
+
+		try {
+			List<Project> batch;
+
+			lock.lock();
+
+			try {
+				cancelScheduledFlush();
+				batch = new ArrayList<>(pending.values());
+				pending.clear();
+			}
+			finally {
+				lock.unlock();
+			}
+
+			if(batch.isEmpty()) {
+				return;
+			}
+
+			List<Integer> projectIds = batch.stream().map(Project::getProjectId).toList();
+			List<Integer> missing;
+
+			try {
+				missing = projectDao.modifyProjectDetails(batch);
+			}
+			catch(DbException e) {
+				requeue(batch);
+				throw e;
+			}
+			finally {
+				onWritten.accept(projectIds);
+			}
+
+			flushes.increment();
+			written.add(batch.size() - missing.size());
+
+			if(!missing.isEmpty()) {
+				throw new DbException("Projects with IDs=" + missing + " do not exist.");
+			}
+		}
+		finally {
+			flushLock.unlock();
+		}
+	}
+
+	/**
+	 * Stops buffering and writes the pending changes. Later updates are written synchronously.
+	 *
+	 * @throws DbException Thrown if the final flush fails. The message names the projects whose
+	 *         changes were not written; they are lost unless the caller writes them another way.
+	 */
+	@Override
+	public void close() {
+		lock.lock();
+
+		try {
+			closed = true;
+			cancelScheduledFlush();
+		}
+		finally {
+			lock.unlock();
+		}
+
+		try {
+			flush();
+		}
+		catch(DbException e) {
+			List<Integer> unwritten;
+
+			lock.lock();
+
+			try {
+				unwritten = new ArrayList<>(pending.keySet());
+			}
+			finally {
+				lock.unlock();
+			}
+
+			if(unwritten.isEmpty()) {
+				throw e;
+			}
+
+			throw new DbException("Write-behind updates to projects with IDs=" + unwritten
+					+ " were not written: " + e.getMessage(), e);
+		}
+		finally {
+			scheduler.shutdown();
+		}
+	}
+
+	/**
+	 * @return The write-behind counters
+	 */
+	public Stats getStats() {
+		lock.lock();
+
+		try {
+			return new Stats(pending.size(), submitted.sum(), coalesced.sum(), flushes.sum(),
+					written.sum(), writtenThrough.sum(), failedFlushes.sum(), lastError);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	/*
+	 * A failed background flush is retried after the delay; there is no caller to report to, so
+	 * the failure is only counted in the stats.
+	 */
+	private void backgroundFlush() {
+		try {
+			flush();
+		}
+		catch(DbException e) {
+			failedFlushes.increment();
+			lastError = e.getMessage();
+		}
+	}
+
+	/*
+	 * Puts back the changes of a failed flush, unless a newer change to the project has arrived.
+	 */
+	private void requeue(List<Project> batch) {
+		lock.lock();
+
+		try {
+			for(Project project : batch) {
+				pending.putIfAbsent(project.getProjectId(), project);
+			}
+
+			if(!closed && Objects.isNull(scheduledFlush)) {
+				scheduledFlush = scheduler.schedule(this::backgroundFlush, maxDelayMillis,
+						TimeUnit.MILLISECONDS);
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private void cancelScheduledFlush() {
+		if(Objects.nonNull(scheduledFlush)) {
+			scheduledFlush.cancel(false);
+			scheduledFlush = null;
+		}
+	}
+
+	private static Project copyDetails(Project from, Project to) {
+		to.setProjectId(from.getProjectId());
+		to.setProjectName(from.getProjectName());
+		to.setEstimatedHours(from.getEstimatedHours());
+		to.setActualHours(from.getActualHours());
+		to.setDifficulty(from.getDifficulty());
+		to.setNotes(from.getNotes());
+		return to;
+	}
+
+	/**
+	 * Write-behind counters.
+	 *
+	 * @param pending Projects with unwritten changes
+	 * @param submitted Updates queued
+	 * @param coalesced Updates that replaced a pending update to the same project
+	 * @param flushes Successful batched writes
+	 * @param written Project rows written by flushes
+	 * @param writtenThrough Updates written synchronously because the buffer was full or closed
+	 * @param failedFlushes Background flushes that failed
+	 * @param lastError The message of the last failed background flush, or null
+	 */
+	public record Stats(int pending, long submitted, long coalesced, long flushes, long written,
+			long writtenThrough, long failedFlushes, String lastError) {
+	}
+}
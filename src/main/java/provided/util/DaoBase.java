@@ -3,20 +3,25 @@
  */
 package provided.util;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.sql.Time;
-import java.sql.Timestamp;
 import java.sql.Types;
-import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This class contains utility methods for the DAO class.
@@ -57,6 +62,75 @@ public abstract class DaoBase {
     conn.rollback();
   }
 
+  /**
+   * This runs a DAO operation and records its latency and outcome in {@link DaoMetrics} under the
+   * given name. While the {@link SlowQueryLog} is enabled, the name is also attached to the
+   * statements the operation runs. When both are disabled the work is simply run.
+   * 
+   * <pre>
+   * public List&lt;Recipe&gt; fetchAllRecipes() {
+   *   return instrument("fetchAllRecipes", () -&gt; { ... });
+   * }
+   * </pre>
+   * 
+   * @param <T> The result type
+   * @param operation The operation name. Use a constant so that metrics group correctly.
+   * @param work The operation
+   * @return The result of the operation
+   */
+  protected <T> T instrument(String operation, Supplier<T> work) {
+    boolean metrics = DaoMetrics.isEnabled();
+    boolean profiling = SlowQueryLog.isEnabled();
+
+    if(!metrics && !profiling) {
+      return work.get();
+    }
+
+    String outerOperation = profiling ? SlowQueryLog.enterOperation(operation) : null;
+    long start = System.nanoTime();
+    boolean failed = true;
+
+    try {
+      T result = work.get();
+      failed = false;
+      return result;
+    }
+    finally {
+      if(metrics) {
+        DaoMetrics.recordOperation(operation, System.nanoTime() - start, failed);
+      }
+
+      if(profiling) {
+        SlowQueryLog.exitOperation(outerOperation);
+      }
+    }
+  }
+
+  /**
+   * This prepares a statement, reusing a cached statement when the connection has a
+   * {@link StatementCache} (pooled connections do). Closing the returned statement returns it to
+   * the cache, so use it in a try-with-resources block as usual. Keep the SQL text constant (not
+   * rebuilt with different whitespace or values) so that the cache can find it. While the
+   * {@link SlowQueryLog} is enabled the statement is profiled.
+   * 
+   * @param conn The connection
+   * @param sql The SQL text
+   * @return The prepared statement
+   * @throws SQLException Thrown if an error occurs
+   */
+  protected PreparedStatement prepareStatement(Connection conn, String sql) throws SQLException {
+    PreparedStatement stmt;
+
+    if(conn instanceof StatementCache.Source source) {
+      stmt = source.getStatementCache().prepare(sql);
+    }
+    else {
+      stmt = conn.prepareStatement(sql);
+    }
+
+    return SlowQueryLog.profile(stmt, sql);
+  }
+
   /**
    * This sets a parameter on a prepared statement. If the parameter is null, it is handled
    * correctly.
@@ -136,6 +210,22 @@ public abstract class DaoBase {
     throw new DaoException("Unsupported class type: " + classType.getName());
   }
 
+  /**
+   * This builds the parameter list for an SQL IN clause: "(?, ?, ?)" for a count of three.
+   * 
+   * @param count The number of parameters. Must be at least one.
+   * @return The parenthesized, comma-separated list of parameter markers.
+   */
+  protected String inClause(int count) {
+    StringBuilder builder = new StringBuilder(count * 3 + 1).append('(');
+
+    for(int i = 0; i < count; i++) {
+      builder.append(i == 0 ? "?" : ", ?");
+    }
+
+    return builder.append(')').toString();
+  }
+
   /**
    * This retrieves the number of child rows and adds one to the value. It is used to set the order
    * of a child row. For a *real* application, a more sophisticated approach is desired. This method
@@ -166,20 +256,85 @@ public abstract class DaoBase {
   }
 
   /**
-   * This returns the integer primary key value of the last row inserted into the given table. It
-   * allows the ID to be inserted into the entity object after inserting it into the table.
+   * This prepares an INSERT statement that returns the primary key values it generates. After the
+   * statement is executed, read the key with {@link #getGeneratedId(PreparedStatement)} or, for a
+   * batch, {@link #setGeneratedIds(PreparedStatement, List, BiConsumer)}. The keys come back with
+   * the response to the insert itself, so no second query is needed.
+   * 
+   * @param conn The connection
+   * @param sql The INSERT statement
+   * @return The prepared statement
+   * @throws SQLException Thrown if an error occurs
+   */
+  protected PreparedStatement prepareInsert(Connection conn, String sql) throws SQLException {
+    PreparedStatement stmt;
+
+    if(conn instanceof StatementCache.Source source) {
+      stmt = source.getStatementCache().prepare(sql, Statement.RETURN_GENERATED_KEYS);
+    }
+    else {
+      stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+    }
+
+    return SlowQueryLog.profile(stmt, sql);
+  }
+
+  /**
+   * This returns the integer primary key value generated by a single-row insert prepared with
+   * {@link #prepareInsert(Connection, String)}.
+   * 
+   * @param stmt The executed insert statement
+   * @return The primary key value
+   * @throws SQLException Thrown if no key was generated
+   */
+  protected Integer getGeneratedId(PreparedStatement stmt) throws SQLException {
+    try(ResultSet keys = stmt.getGeneratedKeys()) {
+      if(keys.next()) {
+        return keys.getInt(1);
+      }
+
+      throw new SQLException("Unable to retrieve the primary key value. No generated key!");
+    }
+  }
+
+  /**
+   * This copies the primary key values generated by an executed insert batch onto the inserted
+   * entities. The keys are returned in the order the rows were added to the batch.
+   * 
+   * @param <T> The entity type
+   * @param stmt The executed batch, prepared with {@link #prepareInsert(Connection, String)}
+   * @param entities The entities, in the order they were added to the batch
+   * @param keySetter Sets the key on an entity, e.g. {@code Project::setProjectId}
+   * @throws SQLException Thrown if fewer keys than entities are returned
+   */
+  protected <T> void setGeneratedIds(PreparedStatement stmt, List<T> entities,
+      BiConsumer<T, Integer> keySetter) throws SQLException {
+    try(ResultSet keys = stmt.getGeneratedKeys()) {
+      for(T entity : entities) {
+        if(!keys.next()) {
+          throw new SQLException("Fewer generated keys than inserted rows!");
+        }
+
+        keySetter.accept(entity, keys.getInt(1));
+      }
+    }
+  }
+
+  /**
+   * This returns the integer primary key value of the last row inserted on this connection. It
+   * costs an extra round trip; new code should use {@link #prepareInsert(Connection, String)} and
+   * {@link #getGeneratedId(PreparedStatement)} instead.
    * 
-   * The other way of doing this is to call {@link Statement#getGeneratedKeys()}, but this returns a
-   * result set that needs to be parsed for the ID. It's not really any easier than this approach
-   * but should be closer to database-agnostic.
+   * LAST_INSERT_ID() is tracked per connection, so it is selected without a FROM clause. Selecting
+   * it FROM the table would return one row per table row.
    * 
    * @param conn The connection
-   * @param table The name of the table on which to get the last inserted primary key value
+   * @param table The name of the table the row was inserted into. No longer used in the query.
    * @return The primary key value
    * @throws SQLException Thrown if an error occurs
    */
   protected Integer getLastInsertId(Connection conn, String table) throws SQLException {
-    String sql = String.format("SELECT LAST_INSERT_ID() FROM %s", table);
+    String sql = "SELECT LAST_INSERT_ID()";
 
     try(Statement stmt = conn.createStatement()) {
       try(ResultSet rs = stmt.executeQuery(sql)) {
@@ -194,7 +349,7 @@ public abstract class DaoBase {
 
   /**
    * This extracts an object of the given type from a result set. The object must have a
-   * zero-argument constructor. It builds an object from a result set using reflection as follows:
+   * zero-argument constructor. It builds an object from a result set as follows:
    * <ol>
    * <li>The zero-argument constructor is obtained.</li>
    * <li>An object of the given class type is created.</li>
@@ -205,6 +360,10 @@ public abstract class DaoBase {
    * <li>The value is assigned to the field in the object.</li>
    * </ol>
    * 
+   * The lookups in steps 1, 3 and 4 are done once per class and the column matching is done once
+   * per result set layout by {@link RowMapper}. When extracting many rows, prefer
+   * {@link #extractAll(ResultSet, Class)}, which also skips the per-row metadata check.
+   * 
    * Example: if a query returns values for a recipe, a Recipe object is returned. So:
    * 
    * <pre>
@@ -231,58 +390,115 @@ public abstract class DaoBase {
    * @return A populated class.
    */
   protected <T> T extract(ResultSet rs, Class<T> classType) {
+    RowMapper<T> mapper = RowMapper.forClass(classType);
+
     try {
-      /* Obtain the constructor and create an object of the correct type. */
-      Constructor<T> con = classType.getConstructor();
-      T obj = con.newInstance();
-
-      /* Get the list of fields and loop through them. */
-      for(Field field : classType.getDeclaredFields()) {
-        String colName = camelCaseToSnakeCase(field.getName());
-        Class<?> fieldType = field.getType();
-
-        /*
-         * Set the field accessible flag which means that we can populate even private fields
-         * without using the setter.
-         */
-        field.setAccessible(true);
-        Object fieldValue = null;
+      T row = mapper.map(rs, mapper.planFor(rs));
+      DaoMetrics.recordRowsMapped(1);
+      return row;
+    }
+    catch(SQLException e) {
+      throw new DaoException("Unable to create object of type " + classType.getName(), e);
+    }
+  }
 
-        try {
-          fieldValue = rs.getObject(colName);
+  /**
+   * This extracts an object of the given type from each remaining row in the result set. The rules
+   * are the same as {@link #extract(ResultSet, Class)}, but the column plan is resolved only once
+   * for the whole result set.
+   * 
+   * @param <T> The Generic for the type of object to create and return.
+   * @param rs The result set. Rows are read from the current position to the end.
+   * @param classType The actual class type of the objects to create.
+   * @return A list of populated objects, in result set order.
+   * @throws SQLException Thrown if an error occurs reading the result set.
+   */
+  protected <T> List<T> extractAll(ResultSet rs, Class<T> classType) throws SQLException {
+    RowMapper<T> mapper = RowMapper.forClass(classType);
+    RowMapper.Plan plan = mapper.planFor(rs);
+    List<T> list = new ArrayList<>();
+
+    while(rs.next()) {
+      list.add(mapper.map(rs, plan));
+    }
+
+    DaoMetrics.recordRowsMapped(list.size());
+    return list;
+  }
+
+  /**
+   * This wraps a result set in a lazily evaluated stream. Each row is extracted as the stream is
+   * consumed, using the same rules as {@link #extract(ResultSet, Class)}, so the rows are never
+   * all held in memory at once. The result set and the given resources (typically the statement
+   * and the connection) are closed when the last row has been read or when the stream is closed,
+   * whichever comes first. Callers that may stop early must close the stream, so use it in a
+   * try-with-resources block.
+   * 
+   * @param <T> The Generic for the type of object to create and return.
+   * @param rs The result set, positioned before the first row.
+   * @param classType The actual class type of the objects to create.
+   * @param resources Resources to close along with the result set, in the given order.
+   * @return A sequential stream of populated objects.
+   * @throws SQLException Thrown if the result set metadata cannot be read.
+   */
+  protected <T> Stream<T> stream(ResultSet rs, Class<T> classType, AutoCloseable... resources)
+      throws SQLException {
+    RowMapper<T> mapper = RowMapper.forClass(classType);
+    RowMapper.Plan plan = mapper.planFor(rs);
+    AtomicBoolean closed = new AtomicBoolean();
+
+    Runnable closer = () -> {
+      if(closed.compareAndSet(false, true)) {
+        closeQuietly(rs);
+
+        for(AutoCloseable resource : resources) {
+          closeQuietly(resource);
         }
-        catch(SQLException e) {
-          /*
-           * An exception caught here means that the field name isn't in the result set. Don't take
-           * any action.
-           */
+      }
+    };
+
+    Spliterator<T> rows = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+        Spliterator.ORDERED | Spliterator.NONNULL) {
+      @Override
+      public boolean tryAdvance(Consumer<? super T> action) {
+        if(closed.get()) {
+          return false;
         }
 
-        /*
-         * Only set the value in the object if there is a value with the same name in the result
-         * set. This will preserve instance variables (like lists) that are assigned values when the
-         * object is created.
-         */
-        if(Objects.nonNull(fieldValue)) {
-          /*
-           * Convert the following types: Time -> LocalTime, and Timestamp -> LocalDateTime.
-           */
-          if(fieldValue instanceof Time && fieldType.equals(LocalTime.class)) {
-            fieldValue = ((Time)fieldValue).toLocalTime();
-          }
-          else if(fieldValue instanceof Timestamp && fieldType.equals(LocalDateTime.class)) {
-            fieldValue = ((Timestamp)fieldValue).toLocalDateTime();
+        try {
+          if(rs.next()) {
+            action.accept(mapper.map(rs, plan));
+            DaoMetrics.recordRowsMapped(1);
+            return true;
           }
-
-          field.set(obj, fieldValue);
         }
+        catch(SQLException e) {
+          closer.run();
+          throw new DaoException("Unable to read the next row of type " + classType.getName(), e);
+        }
+
+        closer.run();
+        return false;
       }
+    };
 
-      return obj;
+    return StreamSupport.stream(rows, false).onClose(closer);
+  }
 
-    }
-    catch(Exception e) {
-      throw new DaoException("Unable to create object of type " + classType.getName(), e);
+  /**
+   * Closes a resource, ignoring any exception. Used when cleaning up after another failure or
+   * after all data has been read.
+   * 
+   * @param resource The resource to close. May be null.
+   */
+  protected void closeQuietly(AutoCloseable resource) {
+    if(Objects.nonNull(resource)) {
+      try {
+        resource.close();
+      }
+      catch(Exception e) {
+        /* Nothing more can be done with the resource. */
+      }
     }
   }
 
@@ -292,7 +508,7 @@ public abstract class DaoBase {
    * @param identifier The name in camel case to convert.
    * @return The name converted to snake case.
    */
-  private String camelCaseToSnakeCase(String identifier) {
+  static String camelCaseToSnakeCase(String identifier) {
     StringBuilder nameBuilder = new StringBuilder();
 
     for(char ch : identifier.toCharArray()) {
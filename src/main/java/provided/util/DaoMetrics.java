@@ -0,0 +1,268 @@
+/**
+ *
+ */
+package provided.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * This class collects DAO metrics: a latency histogram and an error count per DAO operation, the
+ * time taken to borrow pooled connections and the number of rows mapped to objects.
+ *
+ * Metrics are off by default. While off, every recording method returns after reading a single
+ * volatile flag, so instrumented code pays almost nothing. Turn them on with
+ * {@link #setEnabled(boolean)} or through JMX after calling {@link #registerMBean()}.
+ * DAO operations are recorded through {@link DaoBase#instrument(String, java.util.function.Supplier)}.
+ *
+ * @author Promineo
+ *
+ */
+public final class DaoMetrics {
+  /** The JMX object name. */
+  public static final String OBJECT_NAME = "provided.util:type=DaoMetrics";
+
+  private static volatile boolean enabled;
+
+  private static final ConcurrentMap<String, OperationMetrics> OPERATIONS =
+      new ConcurrentHashMap<>();
+  private static final LatencyHistogram ACQUIRE = new LatencyHistogram();
+  private static final LongAdder ROWS_MAPPED = new LongAdder();
+
+  private DaoMetrics() {}
+
+  /**
+   * @return {@code true} if metrics are being recorded
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Turns recording on or off. Turning it off keeps the values recorded so far.
+   *
+   * @param enabled {@code true} to record metrics
+   */
+  public static void setEnabled(boolean enabled) {
+    DaoMetrics.enabled = enabled;
+  }
+
+  /**
+   * Records one call of a DAO operation.
+   *
+   * @param operation The operation name, usually the DAO method name
+   * @param nanos The elapsed time
+   * @param failed {@code true} if the call threw an exception
+   */
+  public static void recordOperation(String operation, long nanos, boolean failed) {
+    if(enabled) {
+      OperationMetrics metrics = OPERATIONS.computeIfAbsent(operation, name -> new OperationMetrics());
+      metrics.latency.record(nanos);
+
+      if(failed) {
+        metrics.errors.increment();
+      }
+    }
+  }
+
+  /**
+   * Records the time taken to borrow a connection.
+   *
+   * @param nanos The elapsed time
+   */
+  public static void recordConnectionAcquire(long nanos) {
+    if(enabled) {
+      ACQUIRE.record(nanos);
+    }
+  }
+
+  /**
+   * Records rows mapped from a result set to objects.
+   *
+   * @param rows The number of rows
+   */
+  public static void recordRowsMapped(long rows) {
+    if(enabled) {
+      ROWS_MAPPED.add(rows);
+    }
+  }
+
+  /**
+   * Clears all metrics.
+   */
+  public static void reset() {
+    OPERATIONS.clear();
+    ACQUIRE.reset();
+    ROWS_MAPPED.reset();
+  }
+
+  /**
+   * @return The current metrics
+   */
+  public static Snapshot snapshot() {
+    Map<String, OperationSnapshot> operations = new TreeMap<>();
+
+    OPERATIONS.forEach((name, metrics) -> operations.put(name,
+        new OperationSnapshot(metrics.latency.snapshot(), metrics.errors.sum())));
+
+    return new Snapshot(operations, ACQUIRE.snapshot(), ROWS_MAPPED.sum());
+  }
+
+  /**
+   * Registers the metrics with the platform MBean server as {@value #OBJECT_NAME}. Calling it
+   * again has no effect.
+   */
+  public static synchronized void registerMBean() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(OBJECT_NAME);
+
+      if(!server.isRegistered(name)) {
+        server.registerMBean(new MXBeanView(), name);
+      }
+    }
+    catch(JMException e) {
+      throw new DaoBase.DaoException("Unable to register " + OBJECT_NAME, e);
+    }
+  }
+
+  /**
+   * Sends a snapshot to the reporter at a fixed rate on a daemon thread. Close the returned handle
+   * to stop reporting.
+   *
+   * @param reporter The reporter
+   * @param periodMillis The time between reports
+   * @return A handle that stops reporting when closed
+   */
+  public static AutoCloseable startReporting(MetricsReporter reporter, long periodMillis) {
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "dao-metrics-reporter");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    ScheduledFuture<?> task = scheduler.scheduleAtFixedRate(() -> {
+      try {
+        reporter.report(snapshot());
+      }
+      catch(RuntimeException e) {
+        /* A failing reporter must not stop future reports. */
+        System.err.println("Metrics reporter failed: " + e);
+      }
+    }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+
+    return () -> {
+      task.cancel(false);
+      scheduler.shutdown();
+    };
+  }
+
+  /**
+   * The metrics for one DAO operation.
+   *
+   * @param latency The latency histogram
+   * @param errors The number of failed calls
+   */
+  public record OperationSnapshot(LatencyHistogram.Snapshot latency, long errors) {
+    @Override
+    public String toString() {
+      return latency + ", errors=" + errors;
+    }
+  }
+
+  /**
+   * All DAO metrics at one point in time.
+   *
+   * @param operations Metrics per DAO operation, sorted by name
+   * @param connectionAcquire Time to borrow pooled connections
+   * @param rowsMapped Rows mapped to objects
+   */
+  public record Snapshot(Map<String, OperationSnapshot> operations,
+      LatencyHistogram.Snapshot connectionAcquire, long rowsMapped) {
+    @Override
+    public String toString() {
+      StringBuilder builder = new StringBuilder("DAO metrics:");
+
+      operations.forEach((name, operation) -> builder.append("\n   ").append(name).append(": ")
+          .append(operation));
+
+      return builder.append("\n   connection acquire: ").append(connectionAcquire)
+          .append("\n   rows mapped: ").append(rowsMapped).toString();
+    }
+  }
+
+  private static class OperationMetrics {
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+  }
+
+  private static class MXBeanView implements DaoMetricsMXBean {
+    @Override
+    public boolean isEnabled() {
+      return DaoMetrics.isEnabled();
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+      DaoMetrics.setEnabled(enabled);
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+      return perOperation(operation -> operation.latency().getCount());
+    }
+
+    @Override
+    public Map<String, Long> getOperationErrorCounts() {
+      return perOperation(OperationSnapshot::errors);
+    }
+
+    @Override
+    public Map<String, Double> getOperationMeanMicros() {
+      return perOperation(operation -> operation.latency().getMeanMicros());
+    }
+
+    @Override
+    public Map<String, Double> getOperationP99Micros() {
+      return perOperation(operation -> operation.latency().getPercentileMicros(99));
+    }
+
+    @Override
+    public long getConnectionAcquireCount() {
+      return ACQUIRE.snapshot().getCount();
+    }
+
+    @Override
+    public double getConnectionAcquireP99Micros() {
+      return ACQUIRE.snapshot().getPercentileMicros(99);
+    }
+
+    @Override
+    public long getRowsMapped() {
+      return ROWS_MAPPED.sum();
+    }
+
+    @Override
+    public void reset() {
+      DaoMetrics.reset();
+    }
+
+    private <V> Map<String, V> perOperation(Function<OperationSnapshot, V> value) {
+      Map<String, V> values = new TreeMap<>();
+      snapshot().operations().forEach((name, operation) -> values.put(name, value.apply(operation)));
+      return values;
+    }
+  }
+}
@@ -0,0 +1,44 @@
+/**
+ *
+ */
+package provided.util;
+
+import java.util.Map;
+
+/**
+ * This is the JMX view of {@link DaoMetrics}. It is registered as
+ * {@value DaoMetrics#OBJECT_NAME} by {@link DaoMetrics#registerMBean()}.
+ *
+ * @author Promineo
+ *
+ */
+public interface DaoMetricsMXBean {
+
+  boolean isEnabled();
+
+  void setEnabled(boolean enabled);
+
+  /** @return Calls per DAO operation */
+  Map<String, Long> getOperationCounts();
+
+  /** @return Failed calls per DAO operation */
+  Map<String, Long> getOperationErrorCounts();
+
+  /** @return Mean latency in microseconds per DAO operation */
+  Map<String, Double> getOperationMeanMicros();
+
+  /** @return 99th percentile latency in microseconds per DAO operation */
+  Map<String, Double> getOperationP99Micros();
+
+  /** @return Connections borrowed from the pool */
+  long getConnectionAcquireCount();
+
+  /** @return 99th percentile time to borrow a connection in microseconds */
+  double getConnectionAcquireP99Micros();
+
+  /** @return Result set rows mapped to objects */
+  long getRowsMapped();
+
+  /** Clears all metrics. */
+  void reset();
+}
@@ -0,0 +1,162 @@
+/**
+ *
+ */
+package provided.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class is a lock-free latency histogram in the style of HdrHistogram. Values are recorded
+ * in nanoseconds into log-linear buckets: each power of two is split into 16 linear sub-buckets,
+ * so any recorded value is reported within about 6% of its true value, from 1ns up to
+ * Long.MAX_VALUE, in a fixed 8KB array. Recording is a single atomic increment and never
+ * allocates.
+ *
+ * @author Promineo
+ *
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong totalNanos = new AtomicLong();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  /**
+   * Records one value.
+   *
+   * @param nanos The latency in nanoseconds. Negative values are recorded as zero.
+   */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+
+    counts.incrementAndGet(bucketIndex(value));
+    totalNanos.addAndGet(value);
+    maxNanos.accumulateAndGet(value, Math::max);
+  }
+
+  /**
+   * Clears all recorded values.
+   */
+  public void reset() {
+    for(int i = 0; i < BUCKETS; i++) {
+      counts.set(i, 0);
+    }
+
+    totalNanos.set(0);
+    maxNanos.set(0);
+  }
+
+  /**
+   * Takes a snapshot of the histogram. Values recorded while the snapshot is taken may or may not
+   * be included.
+   *
+   * @return The snapshot
+   */
+  public Snapshot snapshot() {
+    long[] copy = new long[BUCKETS];
+    /* Counted from the copied buckets, so percentiles always agree with the count. */
+    long count = 0;
+
+    for(int i = 0; i < BUCKETS; i++) {
+      copy[i] = counts.get(i);
+      count += copy[i];
+    }
+
+    return new Snapshot(copy, count, totalNanos.get(), maxNanos.get());
+  }
+
+  private static int bucketIndex(long value) {
+    if(value < SUB_BUCKETS) {
+      return (int)value;
+    }
+
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int)(value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  private static long bucketLowerBound(int index) {
+    if(index < SUB_BUCKETS) {
+      return index;
+    }
+
+    int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long subBucket = index % SUB_BUCKETS;
+
+    return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+  }
+
+  /**
+   * An immutable copy of a histogram's counts.
+   */
+  public static class Snapshot {
+    private final long[] counts;
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+
+    private Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+      this.counts = counts;
+      this.count = count;
+      this.totalNanos = totalNanos;
+      this.maxNanos = maxNanos;
+    }
+
+    /**
+     * @return The number of recorded values
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * @return The mean in microseconds, or zero if nothing was recorded
+     */
+    public double getMeanMicros() {
+      return count == 0 ? 0 : totalNanos / 1_000.0 / count;
+    }
+
+    /**
+     * @return The largest recorded value in microseconds
+     */
+    public double getMaxMicros() {
+      return maxNanos / 1_000.0;
+    }
+
+    /**
+     * Returns the value below which the given percentage of recorded values fall.
+     *
+     * @param percentile The percentile, from 0 to 100
+     * @return The value in microseconds, or zero if nothing was recorded
+     */
+    public double getPercentileMicros(double percentile) {
+      if(count == 0) {
+        return 0;
+      }
+
+      long target = Math.max(1, (long)Math.ceil(count * percentile / 100.0));
+      long seen = 0;
+
+      for(int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+
+        if(seen >= target) {
+          return Math.min(bucketLowerBound(i), maxNanos) / 1_000.0;
+        }
+      }
+
+      return getMaxMicros();
+    }
+
+    @Override
+    public String toString() {
+      return String.format("count=%d, mean=%.1fus, p50=%.1fus, p99=%.1fus, max=%.1fus", count,
+          getMeanMicros(), getPercentileMicros(50), getPercentileMicros(99), getMaxMicros());
+    }
+  }
+}
@@ -0,0 +1,30 @@
+/**
+ *
+ */
+package provided.util;
+
+/**
+ * This interface receives periodic snapshots of the DAO metrics. Register an implementation with
+ * {@link DaoMetrics#startReporting(MetricsReporter, long)} to send the metrics to a log, a file or
+ * a monitoring system.
+ *
+ * @author Promineo
+ *
+ */
+@FunctionalInterface
+public interface MetricsReporter {
+
+  /**
+   * Called on the reporting thread with the current metrics.
+   *
+   * @param snapshot The metrics at the time of the report
+   */
+  void report(DaoMetrics.Snapshot snapshot);
+
+  /**
+   * @return A reporter that prints each snapshot on the console.
+   */
+  static MetricsReporter console() {
+    return snapshot -> System.out.println(snapshot);
+  }
+}
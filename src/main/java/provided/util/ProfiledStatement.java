@@ -0,0 +1,234 @@
+/**
+ *
+ */
+package provided.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * This class wraps a prepared statement for {@link SlowQueryLog}. It remembers the parameters
+ * bound to the statement and times each execution. Updates and batches are reported as soon as
+ * they finish. Queries are reported when their result set is closed, with the number of rows
+ * read, so the time includes fetching the rows.
+ *
+ * @author Promineo
+ *
+ */
+class ProfiledStatement implements InvocationHandler {
+  private final PreparedStatement target;
+  private final String sql;
+  private final String operation;
+
+  private Object[] parameters = new Object[8];
+  private int parameterCount;
+  private int batchCount;
+  private ProfiledResultSet openResult;
+
+  private ProfiledStatement(PreparedStatement target, String sql, String operation) {
+    this.target = target;
+    this.sql = sql;
+    this.operation = operation;
+  }
+
+  /**
+   * @param target The statement to profile
+   * @param sql The SQL text of the statement
+   * @param operation The DAO operation that prepared it, or null if unknown
+   * @return A statement that reports slow executions to {@link SlowQueryLog}
+   */
+  static PreparedStatement wrap(PreparedStatement target, String sql, String operation) {
+    return (PreparedStatement)Proxy.newProxyInstance(ProfiledStatement.class.getClassLoader(),
+        new Class<?>[] {PreparedStatement.class}, new ProfiledStatement(target, sql, operation));
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    String name = method.getName();
+    int argCount = Objects.isNull(args) ? 0 : args.length;
+
+    if(name.startsWith("set") && argCount >= 2 && args[0] instanceof Integer index
+        && method.getParameterTypes()[0] == int.class) {
+      bind(index, name.equals("setNull") ? null : args[1]);
+      return call(method, args);
+    }
+
+    if(argCount == 0) {
+      switch(name) {
+        case "executeQuery":
+          return executeQuery(method);
+
+        case "executeUpdate":
+        case "executeLargeUpdate":
+        case "execute":
+          return executeUpdate(method);
+
+        case "executeBatch":
+        case "executeLargeBatch":
+          return executeBatch(method);
+
+        case "addBatch":
+          batchCount++;
+          break;
+
+        case "clearBatch":
+          batchCount = 0;
+          break;
+
+        case "clearParameters":
+          Arrays.fill(parameters, null);
+          parameterCount = 0;
+          break;
+
+        case "close":
+          finishResult();
+          break;
+
+        default:
+          break;
+      }
+    }
+
+    return call(method, args);
+  }
+
+  private Object executeQuery(Method method) throws Throwable {
+    finishResult();
+
+    long start = System.nanoTime();
+    ResultSet rs = (ResultSet)call(method, null);
+
+    openResult = new ProfiledResultSet(rs, start, System.nanoTime() - start, parameters());
+
+    return Proxy.newProxyInstance(ProfiledStatement.class.getClassLoader(),
+        new Class<?>[] {ResultSet.class}, openResult);
+  }
+
+  private Object executeUpdate(Method method) throws Throwable {
+    long start = System.nanoTime();
+    Object result = call(method, null);
+    long elapsed = System.nanoTime() - start;
+    long rows;
+
+    if(result instanceof Boolean hasResultSet) {
+      rows = hasResultSet ? -1 : target.getUpdateCount();
+    }
+    else {
+      rows = ((Number)result).longValue();
+    }
+
+    SlowQueryLog.record(operation, sql, parameters(), 0, elapsed, elapsed, rows);
+    return result;
+  }
+
+  private Object executeBatch(Method method) throws Throwable {
+    int batches = batchCount;
+    long start = System.nanoTime();
+    Object result = call(method, null);
+    long elapsed = System.nanoTime() - start;
+    long rows = 0;
+
+    if(result instanceof int[] counts) {
+      for(int count : counts) {
+        rows += Math.max(0, count);
+      }
+    }
+    else if(result instanceof long[] counts) {
+      for(long count : counts) {
+        rows += Math.max(0, count);
+      }
+    }
+
+    batchCount = 0;
+    SlowQueryLog.record(operation, sql, parameters(), batches, elapsed, elapsed, rows);
+    return result;
+  }
+
+  /*
+   * A result set closed by closing its statement is reported here.
+   */
+  private void finishResult() {
+    if(Objects.nonNull(openResult)) {
+      openResult.finish();
+      openResult = null;
+    }
+  }
+
+  private void bind(int index, Object value) {
+    if(index > parameters.length) {
+      parameters = Arrays.copyOf(parameters, Math.max(index, parameters.length * 2));
+    }
+
+    parameters[index - 1] = value;
+    parameterCount = Math.max(parameterCount, index);
+  }
+
+  private Object[] parameters() {
+    return Arrays.copyOf(parameters, parameterCount);
+  }
+
+  private Object call(Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    }
+    catch(InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Counts the rows read from a query and reports the query when the result set is closed.
+   */
+  private class ProfiledResultSet implements InvocationHandler {
+    private final ResultSet rs;
+    private final long start;
+    private final long executeNanos;
+    private final Object[] boundParameters;
+    private long rows;
+    private boolean finished;
+
+    private ProfiledResultSet(ResultSet rs, long start, long executeNanos,
+        Object[] boundParameters) {
+      this.rs = rs;
+      this.start = start;
+      this.executeNanos = executeNanos;
+      this.boundParameters = boundParameters;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      if(Objects.isNull(args) && method.getName().equals("close")) {
+        finish();
+      }
+
+      Object result;
+
+      try {
+        result = method.invoke(rs, args);
+      }
+      catch(InvocationTargetException e) {
+        throw e.getCause();
+      }
+
+      if(Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+        rows++;
+      }
+
+      return result;
+    }
+
+    private void finish() {
+      if(!finished) {
+        finished = true;
+        SlowQueryLog.record(operation, sql, boundParameters, 0, executeNanos,
+            System.nanoTime() - start, rows);
+      }
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/**
+ *
+ */
+package provided.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class appends lines to a log file on a background thread. Callers only put the line on a
+ * bounded queue and never wait for the disk; if the queue is full the line is dropped. When the
+ * file would grow past its size limit it is renamed to file.1 (file.1 to file.2 and so on) and a
+ * new file is started, keeping at most the given number of files.
+ *
+ * @author Promineo
+ *
+ */
+class RotatingLogWriter implements AutoCloseable {
+  private static final int QUEUE_CAPACITY = 8192;
+  private static final int MAX_DRAIN = 256;
+  private static final long CLOSE_WAIT_MILLIS = 5_000;
+
+  private final Path file;
+  private final long maxFileBytes;
+  private final int maxFiles;
+  private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+  private final Thread thread;
+  private volatile boolean closed;
+
+  private Writer out;
+  private long size;
+
+  /**
+   * @param file The log file. Missing parent directories are created.
+   * @param maxFileBytes The size at which the file is rotated
+   * @param maxFiles The number of files kept, including the current one
+   * @param threadName The name of the writer thread
+   * @throws IOException Thrown if the file cannot be opened
+   */
+  RotatingLogWriter(Path file, long maxFileBytes, int maxFiles, String threadName)
+      throws IOException {
+    if(maxFileBytes < 1 || maxFiles < 1) {
+      throw new IllegalArgumentException(
+          "File size and file count must be at least 1: " + maxFileBytes + ", " + maxFiles);
+    }
+
+    this.file = file.toAbsolutePath();
+    this.maxFileBytes = maxFileBytes;
+    this.maxFiles = maxFiles;
+
+    Files.createDirectories(this.file.getParent());
+    open();
+
+    thread = new Thread(this::run, threadName);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Queues a line without waiting.
+   *
+   * @param line The line, without a line terminator
+   * @return {@code false} if the line was dropped because the queue is full or the writer is closed
+   */
+  boolean offer(String line) {
+    return !closed && queue.offer(line);
+  }
+
+  /**
+   * Writes the queued lines and closes the file, waiting a few seconds at most.
+   */
+  @Override
+  public void close() {
+    closed = true;
+
+    try {
+      thread.join(CLOSE_WAIT_MILLIS);
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void run() {
+    List<String> lines = new ArrayList<>(MAX_DRAIN);
+
+    while(!closed || !queue.isEmpty()) {
+      try {
+        String line = queue.poll(100, TimeUnit.MILLISECONDS);
+
+        if(Objects.nonNull(line)) {
+          lines.add(line);
+          queue.drainTo(lines, MAX_DRAIN - 1);
+          write(lines);
+        }
+      }
+      catch(InterruptedException e) {
+        closed = true;
+      }
+      catch(IOException e) {
+        System.err.println("Unable to write to " + file + ": " + e);
+      }
+
+      lines.clear();
+    }
+
+    try {
+      out.close();
+    }
+    catch(IOException e) {
+      /* Nothing more can be done with the file. */
+    }
+  }
+
+  private void write(List<String> lines) throws IOException {
+    for(String line : lines) {
+      long bytes = line.getBytes(StandardCharsets.UTF_8).length + 1;
+
+      if(size > 0 && size + bytes > maxFileBytes) {
+        rotate();
+      }
+
+      out.write(line);
+      out.write('\n');
+      size += bytes;
+    }
+
+    out.flush();
+  }
+
+  private void rotate() throws IOException {
+    out.close();
+
+    if(maxFiles == 1) {
+      Files.delete(file);
+    }
+    else {
+      for(int i = maxFiles - 2; i >= 1; i--) {
+        Path older = rotated(i);
+
+        if(Files.exists(older)) {
+          Files.move(older, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+        }
+      }
+
+      Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    open();
+  }
+
+  private Path rotated(int index) {
+    return file.resolveSibling(file.getFileName() + "." + index);
+  }
+
+  private void open() throws IOException {
+    out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+        StandardOpenOption.APPEND);
+    size = Files.size(file);
+  }
+}
@@ -0,0 +1,216 @@
+/**
+ *
+ */
+package provided.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class maps result set rows to objects of a single class. It does the same job as the
+ * reflective {@link DaoBase#extract(ResultSet, Class)} algorithm but does the expensive work once:
+ * <ol>
+ * <li>When the mapper for a class is first requested, the zero-argument constructor and a setter
+ * {@link MethodHandle} for every instance field are looked up, and the field names are converted
+ * to snake case.</li>
+ * <li>The first time a result set with a given column layout is seen, the field names are matched
+ * against the column labels and the one-based column index of every matching field is recorded in
+ * a {@link Plan}. Plans are cached by column layout.</li>
+ * <li>Each row is then mapped by reading the recorded column indexes and invoking the setter
+ * handles. Fields without a matching column are never touched, so there is no exception on the
+ * per-row path.</li>
+ * </ol>
+ *
+ * Mappers are cached per class and are thread safe.
+ *
+ * @author Promineo
+ *
+ * @param <T> The type of object created from each row.
+ */
+public final class RowMapper<T> {
+  private static final MethodType SETTER_TYPE =
+      MethodType.methodType(void.class, Object.class, Object.class);
+  private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+  private static final ClassValue<RowMapper<?>> MAPPERS = new ClassValue<>() {
+    @Override
+    protected RowMapper<?> computeValue(Class<?> type) {
+      return new RowMapper<>(type);
+    }
+  };
+
+  private final Class<T> classType;
+  private final MethodHandle constructor;
+  private final Map<String, FieldSetter> settersByColumn;
+  private final Map<String, Plan> plans = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the cached mapper for the given class, creating it if needed.
+   *
+   * @param <T> The type of object to create.
+   * @param classType The class. It must have a public zero-argument constructor.
+   * @return The mapper.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> RowMapper<T> forClass(Class<T> classType) {
+    return (RowMapper<T>)MAPPERS.get(classType);
+  }
+
+  private RowMapper(Class<T> classType) {
+    this.classType = classType;
+
+    try {
+      MethodHandles.Lookup lookup =
+          MethodHandles.privateLookupIn(classType, MethodHandles.lookup());
+
+      constructor = lookup.findConstructor(classType, MethodType.methodType(void.class))
+          .asType(CONSTRUCTOR_TYPE);
+
+      settersByColumn = new HashMap<>();
+
+      for(Field field : classType.getDeclaredFields()) {
+        if(Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers())) {
+          continue;
+        }
+
+        String colName = DaoBase.camelCaseToSnakeCase(field.getName());
+        MethodHandle setter = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+
+        settersByColumn.put(colName, new FieldSetter(setter, field.getType()));
+      }
+    }
+    catch(ReflectiveOperationException e) {
+      throw new DaoBase.DaoException("Unable to create a row mapper for " + classType.getName(), e);
+    }
+  }
+
+  /**
+   * Returns the column plan for the given result set. The plan is built once per column layout.
+   * Call this once before looping through the rows and then pass the plan to
+   * {@link #map(ResultSet, Plan)} for each row.
+   *
+   * @param rs The result set.
+   * @return The plan for the result set's column layout.
+   * @throws SQLException Thrown if the result set metadata cannot be read.
+   */
+  public Plan planFor(ResultSet rs) throws SQLException {
+    ResultSetMetaData meta = rs.getMetaData();
+    int columnCount = meta.getColumnCount();
+    String[] labels = new String[columnCount];
+    StringBuilder shape = new StringBuilder();
+
+    for(int col = 1; col <= columnCount; col++) {
+      labels[col - 1] = meta.getColumnLabel(col).toLowerCase(Locale.ROOT);
+      shape.append(labels[col - 1]).append(',');
+    }
+
+    return plans.computeIfAbsent(shape.toString(), key -> buildPlan(labels));
+  }
+
+  /**
+   * Creates an object from the current row of the result set.
+   *
+   * @param rs The result set, positioned on the row to map.
+   * @param plan The plan returned by {@link #planFor(ResultSet)} for this result set.
+   * @return The populated object.
+   */
+  public T map(ResultSet rs, Plan plan) {
+    try {
+      @SuppressWarnings("unchecked")
+      T obj = (T)constructor.invokeExact();
+      int[] columns = plan.columns;
+      FieldSetter[] setters = plan.setters;
+
+      for(int i = 0; i < columns.length; i++) {
+        Object value = rs.getObject(columns[i]);
+
+        /*
+         * Only set the value if it is not null. This preserves instance variables that are
+         * assigned values when the object is created.
+         */
+        if(Objects.nonNull(value)) {
+          setters[i].set(obj, value);
+        }
+      }
+
+      return obj;
+    }
+    catch(Throwable e) {
+      throw new DaoBase.DaoException("Unable to create object of type " + classType.getName(), e);
+    }
+  }
+
+  private Plan buildPlan(String[] labels) {
+    List<Integer> columns = new ArrayList<>();
+    List<FieldSetter> setters = new ArrayList<>();
+    Map<String, Boolean> seen = new HashMap<>();
+
+    for(int col = 1; col <= labels.length; col++) {
+      FieldSetter setter = settersByColumn.get(labels[col - 1]);
+
+      /* Like ResultSet.findColumn(), the first column with a matching label wins. */
+      if(Objects.nonNull(setter) && Objects.isNull(seen.putIfAbsent(labels[col - 1], true))) {
+        columns.add(col);
+        setters.add(setter);
+      }
+    }
+
+    return new Plan(columns.stream().mapToInt(Integer::intValue).toArray(),
+        setters.toArray(FieldSetter[]::new));
+  }
+
+  /**
+   * The resolved column indexes and field setters for one result set column layout.
+   */
+  public static final class Plan {
+    private final int[] columns;
+    private final FieldSetter[] setters;
+
+    private Plan(int[] columns, FieldSetter[] setters) {
+      this.columns = columns;
+      this.setters = setters;
+    }
+  }
+
+  /*
+   * A setter handle for one field plus the conversions done by the reflective extract: Time ->
+   * LocalTime and Timestamp -> LocalDateTime.
+   */
+  private static final class FieldSetter {
+    private final MethodHandle setter;
+    private final Class<?> fieldType;
+
+    private FieldSetter(MethodHandle setter, Class<?> fieldType) {
+      this.setter = setter;
+      this.fieldType = fieldType;
+    }
+
+    private void set(Object obj, Object value) throws Throwable {
+      if(value instanceof Time time && fieldType == LocalTime.class) {
+        value = time.toLocalTime();
+      }
+      else if(value instanceof Timestamp timestamp && fieldType == LocalDateTime.class) {
+        value = timestamp.toLocalDateTime();
+      }
+
+      setter.invokeExact(obj, value);
+    }
+  }
+}
@@ -0,0 +1,249 @@
+/**
+ *
+ */
+package provided.util;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class logs SQL statements that take longer than a threshold. Each entry has the SQL text,
+ * the bound parameters, the execution time, the number of rows read or changed and the DAO
+ * operation that ran the statement, for example:
+ *
+ * <pre>
+ * 2026-10-18T09:12:44.305Z op=fetchAllProjects total=812.4ms exec=640.1ms rows=10000 batches=0 sql="SELECT * FROM project ORDER BY project_name" params=[]
+ * </pre>
+ *
+ * For queries, total is the time from execution until the result set was closed, so it includes
+ * reading the rows; exec is the execution alone.
+ *
+ * Entries are written to a size-rotated file by a background thread. A query thread only formats
+ * the entry and puts it on a bounded queue; if the writer falls behind, entries are dropped and
+ * counted rather than slowing the queries down. Statements prepared through
+ * {@link DaoBase#prepareStatement(java.sql.Connection, String)} and
+ * {@link DaoBase#prepareInsert(java.sql.Connection, String)} are profiled while the log is
+ * enabled. The operation is the name passed to
+ * {@link DaoBase#instrument(String, java.util.function.Supplier)}, or the calling DAO method when
+ * the statement runs on another thread.
+ *
+ * @author Promineo
+ *
+ */
+public final class SlowQueryLog {
+  /** The default size at which the log file is rotated. */
+  public static final long DEFAULT_MAX_FILE_BYTES = 10L * 1024 * 1024;
+
+  /** The default number of log files kept, including the current one. */
+  public static final int DEFAULT_MAX_FILES = 5;
+
+  private static final int MAX_LOGGED_PARAMETERS = 20;
+  private static final int MAX_PARAMETER_LENGTH = 64;
+  private static final int MAX_SQL_LENGTH = 2000;
+
+  private static final ThreadLocal<String> OPERATION = new ThreadLocal<>();
+  private static final StackWalker STACK_WALKER =
+      StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+  private static final LongAdder LOGGED = new LongAdder();
+  private static final LongAdder DROPPED = new LongAdder();
+
+  private static volatile RotatingLogWriter writer;
+  private static volatile long thresholdNanos;
+  private static boolean shutdownHookAdded;
+
+  private SlowQueryLog() {}
+
+  /**
+   * Starts logging statements slower than the threshold, using the default file size and count.
+   *
+   * @param file The log file
+   * @param thresholdMillis Statements taking at least this long are logged
+   */
+  public static void enable(Path file, long thresholdMillis) {
+    enable(file, thresholdMillis, DEFAULT_MAX_FILE_BYTES, DEFAULT_MAX_FILES);
+  }
+
+  /**
+   * Starts logging statements slower than the threshold. If the log is already enabled, the
+   * current file is closed first. The log is flushed when the JVM shuts down.
+   *
+   * @param file The log file. Rotated files are named file.1, file.2 and so on.
+   * @param thresholdMillis Statements taking at least this long are logged
+   * @param maxFileBytes The size at which the file is rotated
+   * @param maxFiles The number of files kept, including the current one
+   */
+  public static synchronized void enable(Path file, long thresholdMillis, long maxFileBytes,
+      int maxFiles) {
+    disable();
+    setThresholdMillis(thresholdMillis);
+
+    try {
+      writer = new RotatingLogWriter(file, maxFileBytes, maxFiles, "slow-query-log-writer");
+    }
+    catch(IOException e) {
+      throw new DaoBase.DaoException("Unable to open slow query log " + file, e);
+    }
+
+    if(!shutdownHookAdded) {
+      Runtime.getRuntime()
+          .addShutdownHook(new Thread(SlowQueryLog::disable, "slow-query-log-close"));
+      shutdownHookAdded = true;
+    }
+  }
+
+  /**
+   * Stops logging, writes the queued entries and closes the file.
+   */
+  public static synchronized void disable() {
+    RotatingLogWriter current = writer;
+
+    if(Objects.nonNull(current)) {
+      writer = null;
+      current.close();
+    }
+  }
+
+  /**
+   * @return {@code true} if statements are being profiled
+   */
+  public static boolean isEnabled() {
+    return Objects.nonNull(writer);
+  }
+
+  /**
+   * @param thresholdMillis Statements taking at least this long are logged. Zero logs every
+   *        statement.
+   */
+  public static void setThresholdMillis(long thresholdMillis) {
+    if(thresholdMillis < 0) {
+      throw new IllegalArgumentException("Threshold must not be negative: " + thresholdMillis);
+    }
+
+    thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+  }
+
+  /**
+   * @return The number of entries logged and dropped since the JVM started
+   */
+  public static Stats getStats() {
+    return new Stats(LOGGED.sum(), DROPPED.sum());
+  }
+
+  /**
+   * Profiles a statement if the log is enabled.
+   *
+   * @param stmt The statement
+   * @param sql The SQL text of the statement
+   * @return The statement, wrapped if the log is enabled
+   */
+  public static PreparedStatement profile(PreparedStatement stmt, String sql) {
+    if(!isEnabled()) {
+      return stmt;
+    }
+
+    return ProfiledStatement.wrap(stmt, sql, OPERATION.get());
+  }
+
+  /**
+   * Sets the operation name for statements prepared on this thread.
+   *
+   * @param operation The operation
+   * @return The enclosing operation, to pass to {@link #exitOperation(String)}
+   */
+  static String enterOperation(String operation) {
+    String outer = OPERATION.get();
+    OPERATION.set(operation);
+    return outer;
+  }
+
+  /**
+   * Restores the enclosing operation name.
+   *
+   * @param outer The value returned by {@link #enterOperation(String)}
+   */
+  static void exitOperation(String outer) {
+    if(Objects.isNull(outer)) {
+      OPERATION.remove();
+    }
+    else {
+      OPERATION.set(outer);
+    }
+  }
+
+  /**
+   * Logs a statement execution if it reached the threshold.
+   */
+  static void record(String operation, String sql, Object[] parameters, int batches,
+      long executeNanos, long totalNanos, long rows) {
+    RotatingLogWriter current = writer;
+
+    if(Objects.isNull(current) || totalNanos < thresholdNanos) {
+      return;
+    }
+
+    String op = Objects.nonNull(operation) ? operation : callingDaoMethod().orElse("unknown");
+
+    StringBuilder line = new StringBuilder(256).append(Instant.now()).append(" op=").append(op)
+        .append(String.format(" total=%.1fms exec=%.1fms", totalNanos / 1e6, executeNanos / 1e6))
+        .append(" rows=").append(rows).append(" batches=").append(batches).append(" sql=\"")
+        .append(truncate(sql, MAX_SQL_LENGTH)).append("\" params=[");
+
+    for(int i = 0; i < parameters.length && i < MAX_LOGGED_PARAMETERS; i++) {
+      line.append(i == 0 ? "" : ", ").append(format(parameters[i]));
+    }
+
+    if(parameters.length > MAX_LOGGED_PARAMETERS) {
+      line.append(", ... ").append(parameters.length - MAX_LOGGED_PARAMETERS).append(" more");
+    }
+
+    if(current.offer(line.append(']').toString())) {
+      LOGGED.increment();
+    }
+    else {
+      DROPPED.increment();
+    }
+  }
+
+  /*
+   * Finds the innermost DaoBase subclass method on the stack, cleaning up lambda names.
+   */
+  private static Optional<String> callingDaoMethod() {
+    return STACK_WALKER.walk(frames -> frames
+        .filter(frame -> DaoBase.class.isAssignableFrom(frame.getDeclaringClass())
+            && frame.getDeclaringClass() != DaoBase.class)
+        .findFirst()
+        .map(frame -> frame.getMethodName().replaceAll("^lambda\\$|\\$\\d+$", "")));
+  }
+
+  private static String format(Object value) {
+    if(value instanceof String || value instanceof Character) {
+      return "'" + truncate(value.toString(), MAX_PARAMETER_LENGTH) + "'";
+    }
+
+    if(value instanceof BigDecimal decimal) {
+      return decimal.toPlainString();
+    }
+
+    return truncate(String.valueOf(value), MAX_PARAMETER_LENGTH);
+  }
+
+  private static String truncate(String text, int maxLength) {
+    return text.length() <= maxLength ? text : text.substring(0, maxLength) + "...";
+  }
+
+  /**
+   * Slow query log counters.
+   *
+   * @param logged Entries queued for writing
+   * @param dropped Entries dropped because the writer fell behind
+   */
+  public record Stats(long logged, long dropped) {}
+}
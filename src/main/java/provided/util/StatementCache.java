@@ -0,0 +1,276 @@
+/**
+ *
+ */
+package provided.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class caches prepared statements for one physical connection, keyed by SQL text. Preparing
+ * a statement that is already cached returns the cached statement, so the driver (and, with
+ * server-side prepared statements, the server) does not parse the same SQL again.
+ *
+ * The statement handed out is a wrapper: closing it clears its parameters and batch and returns
+ * it to the cache instead of closing it, so callers keep using try-with-resources. A cached
+ * statement is only handed to one caller at a time; if the same SQL is prepared again while the
+ * cached statement is in use, a plain uncached statement is returned.
+ *
+ * The cache holds at most a fixed number of statements and evicts the least recently used one.
+ * Use it through {@link DaoBase#prepareStatement(Connection, String)}, which finds the cache of a
+ * connection that implements {@link Source}.
+ *
+ * @author Promineo
+ *
+ */
+public class StatementCache implements AutoCloseable {
+  private static final LongAdder HITS = new LongAdder();
+  private static final LongAdder MISSES = new LongAdder();
+  private static final LongAdder EVICTIONS = new LongAdder();
+
+  private final Connection physical;
+  private final int maxSize;
+  private final Map<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+  private boolean closed;
+
+  /**
+   * A connection that owns a statement cache. Pooled connections implement this interface.
+   */
+  public interface Source {
+
+    /**
+     * @return The statement cache of the underlying physical connection.
+     */
+    StatementCache getStatementCache();
+  }
+
+  /**
+   * @param physical The physical connection on which statements are prepared.
+   * @param maxSize The maximum number of cached statements.
+   */
+  public StatementCache(Connection physical, int maxSize) {
+    this.physical = physical;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns a cached statement for the SQL, preparing and caching it on a miss.
+   *
+   * @param sql The SQL text.
+   * @return A statement whose close() returns it to the cache.
+   * @throws SQLException Thrown if the statement cannot be prepared.
+   */
+  public PreparedStatement prepare(String sql) throws SQLException {
+    return prepare(sql, Statement.NO_GENERATED_KEYS);
+  }
+
+  /**
+   * Returns a cached statement for the SQL and generated keys flag, preparing and caching it on a
+   * miss.
+   *
+   * @param sql The SQL text.
+   * @param autoGeneratedKeys {@link Statement#RETURN_GENERATED_KEYS} or
+   *        {@link Statement#NO_GENERATED_KEYS}.
+   * @return A statement whose close() returns it to the cache.
+   * @throws SQLException Thrown if the statement cannot be prepared.
+   */
+  public PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+    String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "K:" + sql : "N:" + sql;
+    CachedStatement cached;
+    boolean uncached;
+
+    synchronized(this) {
+      cached = statements.get(key);
+
+      if(Objects.nonNull(cached) && !cached.inUse) {
+        cached.inUse = true;
+        HITS.increment();
+        return cached.newHandle();
+      }
+
+      MISSES.increment();
+      uncached = closed || Objects.nonNull(cached);
+    }
+
+    if(uncached) {
+      /* In use by another caller on this connection: hand out an uncached statement. */
+      return physical.prepareStatement(sql, autoGeneratedKeys);
+    }
+
+    cached = new CachedStatement(key, physical.prepareStatement(sql, autoGeneratedKeys));
+    cached.inUse = true;
+
+    List<CachedStatement> evicted = new ArrayList<>();
+
+    synchronized(this) {
+      statements.put(key, cached);
+      Iterator<CachedStatement> it = statements.values().iterator();
+
+      while(statements.size() > maxSize && it.hasNext()) {
+        CachedStatement eldest = it.next();
+
+        if(!eldest.inUse) {
+          it.remove();
+          evicted.add(eldest);
+          EVICTIONS.increment();
+        }
+      }
+    }
+
+    evicted.forEach(CachedStatement::closeQuietly);
+    return cached.newHandle();
+  }
+
+  /**
+   * Closes every cached statement that is not in use. Statements in use are closed when they are
+   * released.
+   */
+  @Override
+  public void close() {
+    List<CachedStatement> toClose;
+
+    synchronized(this) {
+      closed = true;
+      toClose = new ArrayList<>();
+
+      for(CachedStatement cached : statements.values()) {
+        if(!cached.inUse) {
+          toClose.add(cached);
+        }
+      }
+
+      statements.clear();
+    }
+
+    toClose.forEach(CachedStatement::closeQuietly);
+  }
+
+  /**
+   * @return Hit, miss and eviction counts across all statement caches.
+   */
+  public static Stats getStats() {
+    return new Stats(HITS.sum(), MISSES.sum(), EVICTIONS.sum());
+  }
+
+  /*
+   * Called when a handle is closed. If the statement was evicted or the cache closed while it was
+   * in use, it is closed for real.
+   */
+  private void release(CachedStatement cached) {
+    boolean keep;
+
+    try {
+      cached.statement.clearParameters();
+      cached.statement.clearBatch();
+      keep = true;
+    }
+    catch(SQLException e) {
+      keep = false;
+    }
+
+    synchronized(this) {
+      cached.inUse = false;
+
+      if(keep && !closed && statements.get(cached.key) == cached) {
+        return;
+      }
+
+      if(statements.get(cached.key) == cached) {
+        statements.remove(cached.key);
+      }
+    }
+
+    cached.closeQuietly();
+  }
+
+  /**
+   * Statement cache counters.
+   *
+   * @param hits Prepares served from a cache.
+   * @param misses Prepares that created a statement.
+   * @param evictions Statements closed to make room.
+   */
+  public record Stats(long hits, long misses, long evictions) {
+
+    /**
+     * @return The fraction of prepares served from a cache.
+     */
+    public double hitRate() {
+      long prepares = hits + misses;
+      return prepares == 0 ? 0 : (double)hits / prepares;
+    }
+  }
+
+  private class CachedStatement {
+    private final String key;
+    private final PreparedStatement statement;
+    private boolean inUse;
+
+    private CachedStatement(String key, PreparedStatement statement) {
+      this.key = key;
+      this.statement = statement;
+    }
+
+    private PreparedStatement newHandle() {
+      boolean[] released = {false};
+
+      return (PreparedStatement)Proxy.newProxyInstance(StatementCache.class.getClassLoader(),
+          new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+            switch(method.getName()) {
+              case "close":
+                if(!released[0]) {
+                  released[0] = true;
+                  release(this);
+                }
+                return null;
+
+              case "isClosed":
+                return released[0] || statement.isClosed();
+
+              case "equals":
+                return proxy == args[0];
+
+              case "hashCode":
+                return System.identityHashCode(proxy);
+
+              case "toString":
+                return "Cached" + statement;
+
+              default:
+                break;
+            }
+
+            if(released[0]) {
+              throw new SQLException("Statement has been returned to the cache.");
+            }
+
+            try {
+              return method.invoke(statement, args);
+            }
+            catch(InvocationTargetException e) {
+              throw e.getCause();
+            }
+          });
+    }
+
+    private void closeQuietly() {
+      try {
+        statement.close();
+      }
+      catch(SQLException e) {
+        /* The statement is being discarded anyway. */
+      }
+    }
+  }
+}
@@ -21,6 +21,8 @@ CREATE TABLE project (
     actual_hours DECIMAL(7,2),
     difficulty INT,
     notes TEXT,
+    version INT NOT NULL DEFAULT 1,
+    purge_requested_at TIMESTAMP NULL,
     PRIMARY KEY (project_id)
 );
 
@@ -50,3 +52,18 @@ CREATE TABLE project_category (
     FOREIGN KEY (project_id) REFERENCES project(project_id) ON DELETE CASCADE,
     FOREIGN KEY (category_id) REFERENCES category(category_id) ON DELETE CASCADE
 );
+
+-- Indexes
+
+-- Supports ORDER BY project_name and keyset pagination on (project_name, project_id)
+CREATE INDEX idx_project_name_id ON project (project_name, project_id);
+
+-- Reads a project's steps in order and finds the neighbors of a step position
+CREATE INDEX idx_step_project_order ON step (project_id, step_order);
+
+-- Finds projects hidden for purging that still have rows to delete
+CREATE INDEX idx_project_purge ON project (purge_requested_at);
+
+-- Full-text search over project names and notes, and over step text
+CREATE FULLTEXT INDEX ft_project_name_notes ON project (project_name, notes);
+CREATE FULLTEXT INDEX ft_step_text ON step (step_text);